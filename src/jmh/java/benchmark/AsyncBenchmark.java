@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.io.InputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.devtech.arrp.api.RuntimeResourcePack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+/**
+ * readers racing each other and async generation, run with -t to see how reader throughput scales with threads
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+public class AsyncBenchmark {
+	private static final int ENTRIES = 10_000;
+	private RuntimeResourcePack pack;
+	private Identifier[] ids;
+
+	@Setup
+	public void setup() {
+		this.pack = RuntimeResourcePack.create("bench:async");
+		this.ids = new Identifier[ENTRIES];
+		byte[] data = "{}".getBytes();
+		for (int i = 0; i < ENTRIES; i++) {
+			this.ids[i] = new Identifier("bench", "models/block/thing_" + i + ".json");
+			this.pack.addAsset(this.ids[i], data);
+		}
+	}
+
+	private int read() throws Exception {
+		Identifier id = this.ids[ThreadLocalRandom.current().nextInt(ENTRIES)];
+		try (InputStream stream = this.pack.open(ResourceType.CLIENT_RESOURCES, id)) {
+			return stream.read();
+		}
+	}
+
+	@Benchmark
+	@Threads (Threads.MAX)
+	public int readers() throws Exception {
+		return this.read();
+	}
+
+	@Benchmark
+	@Group ("generating")
+	@GroupThreads (3)
+	public int readersWhileGenerating() throws Exception {
+		return this.read();
+	}
+
+	@Benchmark
+	@Group ("generating")
+	@GroupThreads (1)
+	public Object generator() throws Exception {
+		int i = ThreadLocalRandom.current().nextInt(ENTRIES);
+		return this.pack.async(pack -> {
+			Blackhole.consumeCPU(1000);
+			pack.addAsset(new Identifier("bench", "models/block/generated_" + i + ".json"), "{}".getBytes());
+		}).get();
+	}
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.devtech.arrp.api.RuntimeResourcePack;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+/**
+ * the heap retained per resource by a pack's keys, maps and index. Every id is built from fresh strings like a mod
+ * would, the resources themselves are all the same deduplicated array. Lookup latency is in {@link LookupBenchmark}.
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.SingleShotTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+public class FootprintBenchmark {
+	private static final byte[] DATA = "{\"parent\":\"block/cube_all\"}".getBytes();
+
+	@Param ({"10000", "100000"}) public int entries;
+	private RuntimeResourcePack pack;
+
+	@AuxCounters (AuxCounters.Type.EVENTS)
+	@State (Scope.Thread)
+	public static class Footprint {
+		public long bytesPerEntry;
+	}
+
+	@Setup (Level.Invocation)
+	public void setup() {
+		this.pack = null;
+		System.gc();
+	}
+
+	@Benchmark
+	public RuntimeResourcePack fill(Footprint footprint) {
+		long before = usedHeap();
+		RuntimeResourcePack pack = RuntimeResourcePack.create("bench:footprint");
+		for (int i = 0; i < this.entries; i++) {
+			pack.addResource(ResourceType.CLIENT_RESOURCES, new Identifier("mod" + i % 8, "models/block/thing_" + i + ".json"), DATA);
+		}
+		this.pack = pack;
+		footprint.bytesPerEntry = (usedHeap() - before) / this.entries;
+		return pack;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
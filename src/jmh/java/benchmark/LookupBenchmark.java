@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.devtech.arrp.api.RuntimeResourcePack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+/**
+ * the read path minecraft hits during a reload, at different pack sizes
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+public class LookupBenchmark {
+	private static final String[] CATEGORIES = {
+			"models/block",
+			"models/item",
+			"textures/block",
+			"blockstates"
+	};
+
+	@Param ({"1000", "10000", "100000"}) public int entries;
+	private RuntimeResourcePack pack;
+	private Identifier[] ids;
+
+	@Setup
+	public void setup() {
+		this.pack = RuntimeResourcePack.create("bench:lookup");
+		this.ids = new Identifier[this.entries];
+		byte[] data = "{\"parent\":\"block/cube_all\"}".getBytes();
+		for (int i = 0; i < this.entries; i++) {
+			String category = CATEGORIES[i % CATEGORIES.length];
+			// a handful of namespaces, like a modpack would have
+			this.ids[i] = new Identifier("mod" + i % 8, category + "/thing_" + i + ".json");
+			this.pack.addAsset(this.ids[i], data);
+		}
+	}
+
+	private Identifier randomId() {
+		return this.ids[ThreadLocalRandom.current().nextInt(this.ids.length)];
+	}
+
+	@Benchmark
+	public int open() throws Exception {
+		try (InputStream stream = this.pack.open(ResourceType.CLIENT_RESOURCES, this.randomId())) {
+			return stream.read();
+		}
+	}
+
+	@Benchmark
+	public boolean contains() {
+		return this.pack.contains(ResourceType.CLIENT_RESOURCES, this.randomId());
+	}
+
+	@Benchmark
+	public boolean containsMissing() {
+		return this.pack.contains(ResourceType.CLIENT_RESOURCES, new Identifier("mod0", "models/block/missing.json"));
+	}
+
+	@Benchmark
+	public Collection<Identifier> findResources() {
+		return this.pack.findResources(ResourceType.CLIENT_RESOURCES, "mod0", "textures", Integer.MAX_VALUE, s -> s.endsWith(".json"));
+	}
+
+	@Benchmark
+	public Object getNamespaces() {
+		return this.pack.getNamespaces(ResourceType.CLIENT_RESOURCES);
+	}
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import net.devtech.arrp.util.PngEncoder;
+import net.devtech.arrp.util.UnsafeByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * png encoding of a texture with ImageIO and with {@link PngEncoder}, "palette" has few enough colors to be written
+ * as an indexed image
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+public class PngBenchmark {
+	@Param ({"16", "64", "256"}) public int size;
+	@Param ({"palette", "truecolor"}) public String colors;
+	private BufferedImage image;
+
+	@Setup
+	public void setup() {
+		this.image = new BufferedImage(this.size, this.size, BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(42);
+		boolean palette = "palette".equals(this.colors);
+		for (int y = 0; y < this.size; y++) {
+			for (int x = 0; x < this.size; x++) {
+				int color = palette ? (random.nextInt(16) * 0x0F0F0F) : random.nextInt();
+				this.image.setRGB(x, y, 0xFF000000 | color);
+			}
+		}
+	}
+
+	@Benchmark
+	public byte[] imageIO() throws IOException {
+		UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream();
+		ImageIO.write(this.image, "png", out);
+		return out.getBytes();
+	}
+
+	@Benchmark
+	public byte[] fast() {
+		return PngEncoder.encode(this.image, PngEncoder.FAST);
+	}
+
+	@Benchmark
+	public byte[] small() {
+		return PngEncoder.encode(this.image, PngEncoder.SMALL);
+	}
+}
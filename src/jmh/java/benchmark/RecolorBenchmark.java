@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import net.devtech.arrp.api.RuntimeResourcePack;
+import net.devtech.arrp.util.ImageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+/**
+ * decode + recolor + encode of a texture, the recolor is lazy so the benchmark forces it with open
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+public class RecolorBenchmark {
+	private static final Identifier ID = new Identifier("bench", "block/recolored");
+	private static final Identifier PATH = new Identifier("bench", "textures/block/recolored.png");
+
+	@Param ({"16", "64", "128", "256", "512"}) public int size;
+	private RuntimeResourcePack pack;
+	private byte[] png;
+
+	@Setup
+	public void setup() throws IOException {
+		this.pack = RuntimeResourcePack.create("bench:recolor");
+		// noisy greyscale, like a typical ore/ingot template
+		BufferedImage image = new BufferedImage(this.size, this.size, BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(42);
+		for (int y = 0; y < this.size; y++) {
+			for (int x = 0; x < this.size; x++) {
+				int grey = 64 + random.nextInt(128);
+				image.setRGB(x, y, 0xFF000000 | grey << 16 | grey << 8 | grey);
+			}
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", baos);
+		this.png = baos.toByteArray();
+	}
+
+	@Benchmark
+	public int addRecoloredImage() throws IOException {
+		this.pack.addRecoloredImage(ID, new ByteArrayInputStream(this.png), i -> ImageUtil.recolor(i, 0x7F3F1F));
+		try (InputStream stream = this.pack.open(ResourceType.CLIENT_RESOURCES, PATH)) {
+			return stream.available();
+		}
+	}
+}
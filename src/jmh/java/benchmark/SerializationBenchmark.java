@@ -0,0 +1,108 @@
+package benchmark;
+
+import static net.devtech.arrp.json.blockstate.JState.multipart;
+import static net.devtech.arrp.json.blockstate.JState.state;
+import static net.devtech.arrp.json.blockstate.JState.variant;
+import static net.devtech.arrp.json.blockstate.JState.when;
+import static net.devtech.arrp.json.models.JModel.element;
+import static net.devtech.arrp.json.models.JModel.face;
+import static net.devtech.arrp.json.models.JModel.faces;
+import static net.devtech.arrp.json.models.JModel.model;
+import static net.devtech.arrp.json.models.JModel.textures;
+
+import java.util.concurrent.TimeUnit;
+
+import net.devtech.arrp.api.RuntimeResourcePack;
+import net.devtech.arrp.json.blockstate.JState;
+import net.devtech.arrp.json.lang.JLang;
+import net.devtech.arrp.json.loot.JEntry;
+import net.devtech.arrp.json.loot.JLootTable;
+import net.devtech.arrp.json.models.JModel;
+import net.devtech.arrp.json.recipe.JIngredient;
+import net.devtech.arrp.json.recipe.JKeys;
+import net.devtech.arrp.json.recipe.JPattern;
+import net.devtech.arrp.json.recipe.JRecipe;
+import net.devtech.arrp.json.recipe.JResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Direction;
+
+/**
+ * serialization + registration cost of the add* methods
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+	private static final Identifier ID = new Identifier("bench", "thing");
+	private RuntimeResourcePack pack;
+	private JModel model;
+	private JState state;
+	private JLootTable lootTable;
+	private JRecipe recipe;
+	private JLang lang;
+
+	@Setup
+	public void setup() {
+		this.pack = RuntimeResourcePack.create("bench:serialization");
+		this.model = model("block/cube").textures(textures().var("all", "block/bamboo_stalk").particle("block/bamboo_stalk"));
+		this.model.element(element().from(7, 0, 7).to(9, 16, 9).faces(faces().down(face("all").cullface(Direction.DOWN).uv(13, 4, 15, 6))
+				.up(face("all").cullface(Direction.UP).uv(13, 0, 15, 2))
+				.north(face("all").uv(9, 0, 11, 16))
+				.south(face("all").uv(9, 0, 11, 16))));
+		this.state = state(multipart(JState.model("block/oak_fence_post")),
+				multipart(JState.model("block/oak_fence_side").uvlock()).when(when().add("north", "true")),
+				multipart(JState.model("block/oak_fence_side").y(90).uvlock()).when(when().add("east", "true")),
+				multipart(JState.model("block/oak_fence_side").y(180).uvlock()).when(when().add("south", "true")),
+				multipart(JState.model("block/oak_fence_side").y(270).uvlock()).when(when().add("west", "true")));
+		JEntry entry = new JEntry(new Identifier("minecraft:item")).name(new Identifier("minecraft:iron_nugget"))
+				.function(JLootTable.function(new Identifier("minecraft:explosion_decay")));
+		this.lootTable = JLootTable.loot("minecraft:block").pool(JLootTable.pool().rolls(1).entry(entry)
+				.condition(JLootTable.predicate(new Identifier("minecraft:survives_explosion"))));
+		this.recipe = JRecipe.shaped(JPattern.pattern("XXX", "X X", "XXX"),
+				JKeys.keys().key("X", JIngredient.ingredient().tag("minecraft:planks")),
+				JResult.result("minecraft:chest"));
+		this.lang = JLang.lang();
+		for (int i = 0; i < 64; i++) {
+			this.lang.entry("block.bench.thing_" + i, "Thing " + i);
+		}
+	}
+
+	@Benchmark
+	public byte[] addModel() {
+		return this.pack.addModel(this.model, ID);
+	}
+
+	@Benchmark
+	public byte[] addBlockState() {
+		return this.pack.addBlockState(this.state, ID);
+	}
+
+	@Benchmark
+	public byte[] addLootTable() {
+		return this.pack.addLootTable(ID, this.lootTable);
+	}
+
+	@Benchmark
+	public byte[] addRecipe() {
+		return this.pack.addRecipe(ID, this.recipe);
+	}
+
+	@Benchmark
+	public byte[] addLang() {
+		return this.pack.addLang(ID, this.lang);
+	}
+
+	// non-unique states (just a variant) are the common case for generated blocks
+	@Benchmark
+	public byte[] addVariantBlockState() {
+		return this.pack.addBlockState(state(variant(JState.model("block/iron_block"))), ID);
+	}
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import static net.devtech.arrp.json.models.JModel.model;
+import static net.devtech.arrp.json.models.JModel.textures;
+
+import java.util.concurrent.TimeUnit;
+
+import net.devtech.arrp.api.RuntimeResourcePack;
+import net.devtech.arrp.json.JTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.util.Identifier;
+
+/**
+ * a cube_all model with one texture swapped, built and serialized each time vs spliced into a template
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+public class TemplateBenchmark {
+	private static final Identifier ID = new Identifier("bench", "block/thing");
+	private RuntimeResourcePack pack;
+	private JTemplate template;
+	private int index;
+
+	@Setup
+	public void setup() {
+		this.pack = RuntimeResourcePack.create("bench:template");
+		this.template = model("block/cube_all").textures(textures().var("all", JTemplate.slot("texture"))).template("texture");
+	}
+
+	@Benchmark
+	public byte[] addModel() {
+		return this.pack.addModel(model("block/cube_all").textures(textures().var("all", this.texture())), ID);
+	}
+
+	@Benchmark
+	public byte[] addFromTemplate() {
+		return this.pack.addFromTemplate(ID, this.template, this.texture());
+	}
+
+	private String texture() {
+		return "bench:block/thing_" + (this.index++ & 1023);
+	}
+}
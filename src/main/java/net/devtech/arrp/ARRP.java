@@ -1,8 +1,9 @@
 package net.devtech.arrp;
 
 import net.devtech.arrp.api.RRPPreGenEntrypoint;
-import net.devtech.arrp.impl.RuntimeResourcePackImpl;
+import net.devtech.arrp.impl.PregenScheduler;
 import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
 import net.fabricmc.loader.api.entrypoint.PreLaunchEntrypoint;
 
 import java.util.logging.Logger;
@@ -14,8 +15,12 @@ public class ARRP implements PreLaunchEntrypoint {
 	public void onPreLaunch() {
 		LOGGER.fine("I used the json to destroy the json");
 		FabricLoader loader = FabricLoader.getInstance();
-		for (RRPPreGenEntrypoint entrypoint : loader.getEntrypoints("rrp:pregen", RRPPreGenEntrypoint.class)) {
-			RuntimeResourcePackImpl.EXECUTOR_SERVICE.submit(entrypoint::pregen);
+		for (EntrypointContainer<RRPPreGenEntrypoint> container : loader.getEntrypointContainers("rrp:pregen", RRPPreGenEntrypoint.class)) {
+			RRPPreGenEntrypoint entrypoint = container.getEntrypoint();
+			if (entrypoint.loadPregenerated()) {
+				continue;
+			}
+			PregenScheduler.submit(container.getProvider().getMetadata().getId(), entrypoint);
 		}
 
 
@@ -0,0 +1,21 @@
+package net.devtech.arrp.api;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * passed to {@link RRPPreGenEntrypoint#pregen(PregenContext)}, pregen isn't finished until every task forked from it
+ * (including tasks forked by forked tasks) is
+ */
+public interface PregenContext {
+	/**
+	 * runs a part of the pregen on another thread, eg. one chunk of the blocks to generate models for
+	 *
+	 * @return completes once the task has run
+	 */
+	CompletableFuture<Void> fork(Runnable task);
+
+	/**
+	 * @return the id of the mod that provided the entrypoint
+	 */
+	String getModId();
+}
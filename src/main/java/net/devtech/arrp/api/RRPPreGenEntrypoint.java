@@ -1,7 +1,7 @@
 package net.devtech.arrp.api;
 
 /**
- * an entrypoint called on preLaunch asynchronously
+ * an entrypoint called on preLaunch asynchronously, the first resource reload waits for every pregen to finish
  */
 public interface RRPPreGenEntrypoint {
 	/**
@@ -9,5 +9,28 @@ public interface RRPPreGenEntrypoint {
 	 *
 	 * @see RRPCallback
 	 */
-	void pregen();
+	default void pregen() {}
+
+	/**
+	 * like {@link #pregen()}, but the work can be split into tasks that run in parallel.
+	 * <pre>{@code
+	 * for (List<Block> chunk : Lists.partition(blocks, 64)) {
+	 *     context.fork(() -> chunk.forEach(this::generateModel));
+	 * }
+	 * }</pre>
+	 */
+	default void pregen(PregenContext context) {
+		this.pregen();
+	}
+
+	/**
+	 * called on preLaunch before pregen is submitted, eg. to import an archive of resources generated at
+	 * build time
+	 *
+	 * @return true if the resources were loaded from somewhere else and pregen should be skipped
+	 * @see RuntimeResourcePack#importArchive
+	 */
+	default boolean loadPregenerated() {
+		return false;
+	}
 }
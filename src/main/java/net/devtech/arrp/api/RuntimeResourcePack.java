@@ -2,16 +2,23 @@ package net.devtech.arrp.api;
 
 import java.awt.image.BufferedImage;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.IntUnaryOperator;
 
+import net.devtech.arrp.impl.ResourceMetrics;
 import net.devtech.arrp.impl.RuntimeResourcePackImpl;
+import net.devtech.arrp.json.JTemplate;
 import net.devtech.arrp.json.animation.JAnimation;
 import net.devtech.arrp.json.blockstate.JState;
 import net.devtech.arrp.json.lang.JLang;
 import net.devtech.arrp.json.loot.JLootTable;
+import net.devtech.arrp.json.meta.JPackMeta;
 import net.devtech.arrp.json.models.JModel;
 import net.devtech.arrp.json.recipe.JRecipe;
 import net.devtech.arrp.json.tags.JTag;
@@ -36,6 +43,13 @@ public interface RuntimeResourcePack extends ResourcePack {
 		return new RuntimeResourcePackImpl(new Identifier(id), version);
 	}
 
+	/**
+	 * @param meta the pack.mcmeta, served to minecraft's metadata readers and from {@link #openRoot(String)}
+	 */
+	static RuntimeResourcePack create(String id, int version, JPackMeta meta) {
+		return new RuntimeResourcePackImpl(new Identifier(id), version, meta);
+	}
+
 	static Identifier id(String string) {return new Identifier(string);}
 
 	static Identifier id(String namespace, String string) {return new Identifier(namespace, string);}
@@ -52,6 +66,16 @@ public interface RuntimeResourcePack extends ResourcePack {
 	 */
 	void addRecoloredImage(Identifier identifier, InputStream target, IntUnaryOperator pixel);
 
+	/**
+	 * recolors one texture into many, the template is decoded once and shared by every variant. Each variant is
+	 * generated and encoded lazily, so variants that are never requested are never encoded.
+	 *
+	 * @param template the input stream of the original texture
+	 * @param variants the place to put each new texture and its pixel recolorer
+	 * @see #addRecoloredImage(Identifier, InputStream, IntUnaryOperator)
+	 */
+	void addRecoloredImages(InputStream template, Map<Identifier, IntUnaryOperator> variants);
+
 	/**
 	 * add a lang file for the given language
 	 *
@@ -76,15 +100,70 @@ public interface RuntimeResourcePack extends ResourcePack {
 			CallableFunction<Identifier, byte[]> data);
 
 	/**
-	 * add a resource that is lazily evaluated
+	 * adds an async resource that's generated once all of its dependencies are, the dependencies must already be in
+	 * this pack, either finished or pending in another async resource or {@link #async(ResourceType, Collection,
+	 * Consumer)}. Readers of the resource only wait for it and its dependencies.
+	 *
+	 * @param dependencies resources of the same type the generator needs
+	 * @param data the generator, it's passed the bytes of every dependency
+	 */
+	Future<byte[]> addAsyncResource(ResourceType type,
+			Identifier identifier,
+			Collection<Identifier> dependencies,
+			CallableFunction<Map<Identifier, byte[]>, byte[]> data);
+
+	/**
+	 * add a resource that is lazily evaluated, the function is called at most once even if the resource is read from
+	 * several threads at the same time. If it throws, every read of the resource rethrows that exception.
 	 */
 	void addLazyResource(ResourceType type, Identifier path, BiFunction<RuntimeResourcePack, Identifier, byte[]> data);
 
+	/**
+	 * add a resource that is lazily evaluated
+	 *
+	 * @param release if true the result isn't kept after it's been read, the next read (eg. on the next resource
+	 * 		reload) evaluates the function again. Useful for large resources that are only read once.
+	 * @see #addLazyResource(ResourceType, Identifier, BiFunction)
+	 */
+	void addLazyResource(ResourceType type,
+			Identifier path,
+			BiFunction<RuntimeResourcePack, Identifier, byte[]> data,
+			boolean release);
+
 	/**
 	 * add a raw resource
 	 */
 	byte[] addResource(ResourceType type, Identifier path, byte[] data);
 
+	/**
+	 * removes a resource, it's gone after the next resource reload
+	 *
+	 * @return false if there was no such resource
+	 */
+	boolean removeResource(ResourceType type, Identifier path);
+
+	/**
+	 * replaces a resource if it exists, unlike {@link #addResource(ResourceType, Identifier, byte[])} this never adds a
+	 * new one
+	 *
+	 * @return false if there was no such resource
+	 */
+	boolean replaceResource(ResourceType type, Identifier path, byte[] data);
+
+	/**
+	 * every add, replace or remove of a resource after the pack's first resource reload gives it a new, higher,
+	 * generation
+	 *
+	 * @return the generation of the resource's last change, 0 if it hasn't changed since the first reload
+	 */
+	long getGeneration(ResourceType type, Identifier path);
+
+	/**
+	 * @return the resources that were added, replaced or removed since the last resource reload started, so tooling
+	 * 		can regenerate or reload only what changed
+	 */
+	Set<Identifier> getDirty(ResourceType type);
+
 	/**
 	 * add a clientside resource
 	 */
@@ -109,6 +188,19 @@ public interface RuntimeResourcePack extends ResourcePack {
 	 */
 	byte[] addBlockState(JState state, Identifier path);
 
+	/**
+	 * adds an instance of a template, much faster than building and serializing the object for every resource
+	 * <p>
+	 * the path is fixed the same way as the template's object would be, eg. a model template is put in models/ and
+	 * ".json" is appended
+	 *
+	 * @param values the value of each of the template's slots, in order
+	 * @see JModel#template(String...)
+	 * @see JState#template(String...)
+	 * @see JLootTable#template(String...)
+	 */
+	byte[] addFromTemplate(Identifier path, JTemplate template, String... values);
+
 	/**
 	 * adds a texture png
 	 * <p>
@@ -143,17 +235,90 @@ public interface RuntimeResourcePack extends ResourcePack {
 
 	/**
 	 * invokes the action on the RRP executor, RRPs are thread-safe you can create expensive assets here, all resources
-	 * are blocked until all async tasks are completed invokes the action on the RRP executor, RRPs are thread-safe you
-	 * can create expensive assets here, all resources are blocked until all async tasks are completed
+	 * are blocked until all async tasks are completed. Readers only wait for the tasks that were still pending when
+	 * they arrived, they never block each other
+	 * <p>
+	 * calling this from inside an action forks the new action onto the same worker, so an action can split its work
+	 * (eg. one per block variant) and wait on the returned futures without starving the executor
 	 * <p>
-	 * calling an this function from itself will result in a infinite loop
+	 * reading from this pack inside of the action will result in a deadlock
 	 *
 	 * @see #addAsyncResource(ResourceType, Identifier, CallableFunction)
 	 */
 	Future<?> async(Consumer<RuntimeResourcePack> action);
 
 	/**
-	 * forcefully dump all assets and data
+	 * invokes the action on the RRP executor, the action declares every resource it will add. Unlike {@link
+	 * #async(Consumer)} only readers of those resources wait for the action, the rest of the pack can be read while it
+	 * runs. The declared resources show up in {@link #contains(ResourceType, Identifier)} and findResources right
+	 * away, any that the action doesn't end up adding are removed once it's done.
+	 *
+	 * @param produces the resources of this type the action will add
+	 */
+	Future<?> async(ResourceType type, Collection<Identifier> produces, Consumer<RuntimeResourcePack> action);
+
+	/**
+	 * overrides the "compress" and "compression threshold" settings of rrp.properties for this pack. Resources of the
+	 * type added from now on are deflated in memory if they're at least threshold bytes, and inflated as they're read.
+	 *
+	 * @param threshold the size in bytes from which resources are compressed, or -1 to not compress them
+	 */
+	void setCompression(ResourceType type, int threshold);
+
+	/**
+	 * enables the on-disk generation cache for this pack. If a cache made with the same version key, pack and mod
+	 * versions exists, its resources are memory mapped into this pack and generation can be skipped. Otherwise every
+	 * resource is written to the cache the first time the pack is closed (after the first resource reload).
+	 * <p>
+	 * ex. if (!PACK.loadCache(MY_MOD_VERSION + configHash)) { generate... }
+	 *
+	 * @param version a key that changes whenever the generated resources would, eg. your mod version + a hash of your
+	 * 		config
+	 * @return true if the resources were restored from the cache
+	 */
+	boolean loadCache(String version);
+
+	/**
+	 * @return where the time spent generating this pack's resources went, only recorded when "debug performance" is
+	 * enabled in rrp.properties, the report is then also written to rrp.debug when the pack is closed
+	 */
+	ResourceMetrics getMetrics();
+
+	/**
+	 * forcefully dump all assets and data into rrp.debug, resources are generated and written in parallel
 	 */
 	void dump();
+
+	/**
+	 * dump all assets and data into a zip, with a pack.mcmeta, so it can be used as a standalone resource and data pack
+	 *
+	 * @param zip the file to write, it's replaced if it exists
+	 */
+	void dumpZip(Path zip);
+
+	/**
+	 * writes every resource to a zip like {@link #dumpZip(Path)}, with a manifest so it can be loaded back with
+	 * {@link #importArchive(Path, String)}, eg. to generate the resources at build time and ship them with the mod
+	 *
+	 * @param version the version key, the archive is only imported with the same key
+	 */
+	void exportArchive(Path archive, String version);
+
+	/**
+	 * serves the resources of an archive made with {@link #exportArchive(Path, String)} by this pack, they're read
+	 * from the zip when they're opened instead of being extracted.
+	 * <pre>{@code
+	 * if (!PACK.importArchive(ARCHIVE, MY_MOD_VERSION)) { generate... }
+	 * }</pre>
+	 *
+	 * @return true if the archive exists, was exported from this pack and has the same version key
+	 * @see RRPPreGenEntrypoint#loadPregenerated()
+	 */
+	boolean importArchive(Path archive, String version);
+
+	/**
+	 * releases the files the pack keeps its resources in, eg. with "storage=mapped". Packs live as long as the game by
+	 * default, this is for packs that are thrown away earlier, they can't be used afterwards.
+	 */
+	void dispose();
 }
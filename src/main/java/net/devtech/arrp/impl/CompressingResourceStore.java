@@ -0,0 +1,186 @@
+package net.devtech.arrp.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import net.devtech.arrp.util.UnsafeByteArrayOutputStream;
+
+/**
+ * deflates resources above a size threshold before handing them to another store, json usually shrinks 5-10x. Reads
+ * of compressed resources decompress as they're streamed.
+ */
+public class CompressingResourceStore implements ResourceStore {
+	private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+	private final ResourceStore store;
+	private final int threshold;
+	private final int level;
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder reads = new LongAdder();
+	private final LongAdder readNanos = new LongAdder();
+
+	/**
+	 * @param store where the (possibly compressed) resources are kept
+	 * @param threshold resources smaller than this are stored as they are
+	 * @param level the deflate level
+	 */
+	public CompressingResourceStore(ResourceStore store, int threshold, int level) {
+		this.store = store;
+		this.threshold = threshold;
+		this.level = level;
+	}
+
+	@Override
+	public StoredResource store(byte[] data) {
+		if (data.length < this.threshold) {
+			return this.store.store(data);
+		}
+
+		Deflater deflater = DEFLATER.get();
+		deflater.reset();
+		deflater.setLevel(this.level);
+		deflater.setInput(data);
+		deflater.finish();
+		UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream(data.length / 4 + 16);
+		byte[] buffer = new byte[4096];
+		while (!deflater.finished()) {
+			out.write(buffer, 0, deflater.deflate(buffer));
+		}
+		byte[] compressed = out.getBytes();
+		if (compressed.length >= data.length) {
+			// not worth inflating on every read
+			return this.store.store(data);
+		}
+
+		this.bytesIn.add(data.length);
+		this.bytesOut.add(compressed.length);
+		return new Compressed(this.store.store(compressed), data.length);
+	}
+
+	/**
+	 * @return the bytes saved by compression so far
+	 */
+	public long getBytesSaved() {
+		return this.bytesIn.sum() - this.bytesOut.sum();
+	}
+
+	/**
+	 * @return the total time spent decompressing resources, in nanoseconds
+	 */
+	public long getDecompressionNanos() {
+		return this.readNanos.sum();
+	}
+
+	@Override
+	public void close() {
+		this.store.close();
+	}
+
+	@Override
+	public String toString() {
+		long in = this.bytesIn.sum(), out = this.bytesOut.sum();
+		return String.format("%d bytes compressed to %d (%.1fx), %d reads took %.1fms to decompress",
+				in,
+				out,
+				out == 0 ? 1 : in / (double) out,
+				this.reads.sum(),
+				this.readNanos.sum() / 1_000_000D);
+	}
+
+	private final class Compressed implements StoredResource {
+		private final StoredResource compressed;
+		private final int length;
+
+		private Compressed(StoredResource compressed, int length) {
+			this.compressed = compressed;
+			this.length = length;
+		}
+
+		@Override
+		public byte[] get() {
+			long start = System.nanoTime();
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(this.compressed.get());
+				byte[] data = new byte[this.length];
+				int read = 0;
+				while (read < data.length && !inflater.finished()) {
+					int inflated = inflater.inflate(data, read, data.length - read);
+					if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						throw new DataFormatException("truncated");
+					}
+					read += inflated;
+				}
+				return data;
+			} catch (DataFormatException e) {
+				throw new IllegalStateException("corrupt compressed resource", e);
+			} finally {
+				inflater.end();
+				CompressingResourceStore.this.reads.increment();
+				CompressingResourceStore.this.readNanos.add(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public InputStream open() {
+			CompressingResourceStore.this.reads.increment();
+			return new TimedInputStream(new InflaterInputStream(this.compressed.open(), new Inflater(), Math.min(this.length, 8192)) {
+				@Override
+				public void close() throws IOException {
+					super.close();
+					this.inf.end();
+				}
+			});
+		}
+
+		@Override
+		public int size() {
+			return this.length;
+		}
+
+		@Override
+		public StoredResource moveTo(ResourceStore store) {
+			return new Compressed(this.compressed.moveTo(store), this.length);
+		}
+
+		@Override
+		public boolean isOnHeap() {
+			return this.compressed.isOnHeap();
+		}
+	}
+
+	/**
+	 * adds the time spent in reads to the decompression time
+	 */
+	private final class TimedInputStream extends FilterInputStream {
+		private TimedInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			long start = System.nanoTime();
+			try {
+				return super.read();
+			} finally {
+				CompressingResourceStore.this.readNanos.add(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long start = System.nanoTime();
+			try {
+				return super.read(b, off, len);
+			} finally {
+				CompressingResourceStore.this.readNanos.add(System.nanoTime() - start);
+			}
+		}
+	}
+}
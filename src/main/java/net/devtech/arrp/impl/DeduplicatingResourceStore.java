@@ -0,0 +1,163 @@
+package net.devtech.arrp.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * shares one stored copy between every resource with the same bytes, eg. the thousands of models that only have a
+ * parent, or every "drops itself" loot table. Resources are looked up by a 64 bit hash of their contents and compared
+ * byte for byte before being shared.
+ * <p>
+ * shared resources are only weakly referenced, once nothing else uses one it's forgotten
+ */
+public class DeduplicatingResourceStore implements ResourceStore {
+	private final ResourceStore store;
+	private final Map<Long, Shared> resources = new ConcurrentHashMap<>();
+	private final ReferenceQueue<StoredResource> cleared = new ReferenceQueue<>();
+	private final LongAdder stored = new LongAdder();
+	private final LongAdder deduplicated = new LongAdder();
+	private final LongAdder bytesStored = new LongAdder();
+	private final LongAdder bytesSaved = new LongAdder();
+
+	/**
+	 * @param store where the distinct resources are kept
+	 */
+	public DeduplicatingResourceStore(ResourceStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public StoredResource store(byte[] data) {
+		this.prune();
+		long hash = hash(data);
+		Shared shared = this.resources.get(hash);
+		StoredResource resource = shared == null ? null : shared.get();
+		if (resource == null) {
+			// held here so it can't be collected before it's returned
+			StoredResource[] found = new StoredResource[1], added = new StoredResource[1];
+			this.resources.compute(hash, (h, current) -> {
+				found[0] = current == null ? null : current.get();
+				if (found[0] != null) {
+					return current;
+				}
+				found[0] = added[0] = this.add(data);
+				return new Shared(h, found[0], this.cleared);
+			});
+			resource = found[0];
+			if (resource == added[0]) {
+				return resource;
+			}
+		}
+
+		// compared in place, the stored copy is only inflated if it's compressed
+		if (resource.size() == data.length && resource.buffer().equals(ByteBuffer.wrap(data))) {
+			this.deduplicated.increment();
+			this.bytesSaved.add(data.length);
+			return resource;
+		}
+		// a hash collision, keep the first one interned and store this one on its own
+		return this.add(data);
+	}
+
+	private StoredResource add(byte[] data) {
+		this.stored.increment();
+		this.bytesStored.add(data.length);
+		return this.store.store(data);
+	}
+
+	/**
+	 * removes the resources that were garbage collected
+	 */
+	private void prune() {
+		Reference<? extends StoredResource> reference;
+		while ((reference = this.cleared.poll()) != null) {
+			Shared shared = (Shared) reference;
+			this.resources.remove(shared.hash, shared);
+		}
+	}
+
+	/**
+	 * @return the number of distinct resources that were stored
+	 */
+	public long getStoredCount() {
+		return this.stored.sum();
+	}
+
+	/**
+	 * @return the number of resources that shared an already stored copy
+	 */
+	public long getDeduplicatedCount() {
+		return this.deduplicated.sum();
+	}
+
+	public long getBytesStored() {
+		return this.bytesStored.sum();
+	}
+
+	public long getBytesSaved() {
+		return this.bytesSaved.sum();
+	}
+
+	/**
+	 * @return the fraction of all resources that were deduplicated
+	 */
+	public double getDeduplicationRatio() {
+		long deduplicated = this.getDeduplicatedCount(), total = deduplicated + this.getStoredCount();
+		return total == 0 ? 0 : deduplicated / (double) total;
+	}
+
+	@Override
+	public void close() {
+		this.resources.clear();
+		this.store.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d resources, %d deduplicated (%.1f%%), %d bytes stored, %d bytes saved",
+				this.getStoredCount() + this.getDeduplicatedCount(),
+				this.getDeduplicatedCount(),
+				this.getDeduplicationRatio() * 100,
+				this.getBytesStored(),
+				this.getBytesSaved()) + (this.store == HEAP ? "" : "; " + this.store);
+	}
+
+	/**
+	 * a 64 bit hash that reads 8 bytes at a time, with murmur3's finalizer
+	 */
+	static long hash(byte[] data) {
+		ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		long hash = data.length * 0x9E3779B97F4A7C15L;
+		while (buffer.remaining() >= 8) {
+			hash = Long.rotateLeft(hash ^ mix(buffer.getLong()), 27) * 0x9E3779B97F4A7C15L + 0x52DCE729;
+		}
+		while (buffer.hasRemaining()) {
+			hash = Long.rotateLeft(hash ^ (buffer.get() & 0xFF) * 0xC2B2AE3D27D4EB4FL, 11) * 0x9E3779B97F4A7C15L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value >>> 33;
+		value *= 0xC4CEB93FE1A85EC3L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	private static final class Shared extends WeakReference<StoredResource> {
+		private final long hash;
+
+		private Shared(long hash, StoredResource resource, ReferenceQueue<StoredResource> queue) {
+			super(resource, queue);
+			this.hash = hash;
+		}
+	}
+}
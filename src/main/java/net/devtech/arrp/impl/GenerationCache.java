@@ -0,0 +1,251 @@
+package net.devtech.arrp.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.metadata.ModMetadata;
+
+/**
+ * an on-disk copy of a runtime resource pack's serialized resources, stored in .cache/rrp/(pack id)/(key).rrpc where
+ * the key is a hash of the user's version key, the pack and the versions of every loaded mod. Any change to those
+ * makes a new file, and older files are deleted once the new one is in use.
+ * <p>
+ * the file is an index followed by the raw bytes of every resource, the bytes are memory mapped back in instead of
+ * being read onto the heap
+ */
+public class GenerationCache {
+	private static final Logger LOGGER = Logger.getLogger("RRP");
+	private static final int MAGIC = 0x52525043; // RRPC
+	private static final int FORMAT = 1;
+	private static final String EXTENSION = ".rrpc";
+	private static final ResourceType[] TYPES = ResourceType.values();
+
+	private final Path directory;
+	private final Path file;
+
+	public GenerationCache(Identifier pack, int packVersion, String version) {
+		this.directory = Paths.get(".cache", "rrp", pack.getNamespace(), pack.getPath());
+		this.file = this.directory.resolve(key(pack, packVersion, version) + EXTENSION);
+	}
+
+	private static String key(Identifier pack, int packVersion, String version) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(version.getBytes(StandardCharsets.UTF_8));
+			digest.update(pack.toString().getBytes(StandardCharsets.UTF_8));
+			digest.update(String.valueOf(packVersion).getBytes(StandardCharsets.UTF_8));
+
+			// any mod update can change what a generator produces
+			List<String> mods = new ArrayList<>();
+			for (ModContainer mod : FabricLoader.getInstance().getAllMods()) {
+				ModMetadata metadata = mod.getMetadata();
+				mods.add(metadata.getId() + '@' + metadata.getVersion().getFriendlyString());
+			}
+			Collections.sort(mods);
+			for (String mod : mods) {
+				digest.update(mod.getBytes(StandardCharsets.UTF_8));
+			}
+
+			StringBuilder builder = new StringBuilder();
+			for (byte b : digest.digest()) {
+				builder.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is always supported", e);
+		}
+	}
+
+	public boolean exists() {
+		return Files.isRegularFile(this.file);
+	}
+
+	/**
+	 * maps the cache file and registers every resource in it
+	 *
+	 * @return false if the file is missing or invalid
+	 */
+	public boolean read(RuntimeResourcePackImpl pack) {
+		if (!this.exists()) {
+			return false;
+		}
+
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+				LOGGER.warning("Invalid RRP cache " + this.file + ", it will be regenerated");
+				return false;
+			}
+
+			int count = buffer.getInt();
+			ResourceType[] types = new ResourceType[count];
+			Identifier[] ids = new Identifier[count];
+			int[] lengths = new int[count];
+			for (int i = 0; i < count; i++) {
+				types[i] = TYPES[buffer.get()];
+				byte[] id = new byte[buffer.getShort() & 0xFFFF];
+				buffer.get(id);
+				ids[i] = new Identifier(new String(id, StandardCharsets.UTF_8));
+				lengths[i] = buffer.getInt();
+			}
+
+			// the blob starts right after the index, every resource has to be inside the file before any is registered
+			int[] offsets = new int[count];
+			long offset = buffer.position();
+			for (int i = 0; i < count; i++) {
+				if (lengths[i] < 0 || offset + lengths[i] > buffer.limit()) {
+					LOGGER.warning("Truncated RRP cache " + this.file + ", it will be regenerated");
+					return false;
+				}
+				offsets[i] = (int) offset;
+				offset += lengths[i];
+			}
+			for (int i = 0; i < count; i++) {
+				pack.put(types[i], ids[i], new Entry(buffer, offsets[i], lengths[i]));
+			}
+			pack.getMetrics().recordCacheHits(count);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warning("Unable to read RRP cache " + this.file + ", it will be regenerated: " + e);
+			return false;
+		}
+
+		this.compact();
+		return true;
+	}
+
+	/**
+	 * evaluates and writes every resource of the pack, nothing is written if any of them fails to generate
+	 */
+	public void write(Map<Identifier, Supplier<byte[]>> assets, Map<Identifier, Supplier<byte[]>> data) {
+		List<ResourceType> types = new ArrayList<>();
+		List<Identifier> ids = new ArrayList<>();
+		List<byte[]> resources = new ArrayList<>();
+		// header + index + blob all have to fit in a single mapped buffer
+		long size = 12;
+		for (ResourceType type : TYPES) {
+			for (Map.Entry<Identifier, Supplier<byte[]>> entry : (type == ResourceType.CLIENT_RESOURCES ? assets : data).entrySet()) {
+				byte[] bytes;
+				try {
+					bytes = entry.getValue().get();
+				} catch (RuntimeException e) {
+					// a cache without it would be restored as if it was complete
+					LOGGER.warning("Unable to generate " + entry.getKey() + ", RRP cache " + this.file + " won't be written: " + e);
+					return;
+				}
+				types.add(type);
+				ids.add(entry.getKey());
+				resources.add(bytes);
+				size += 7 + entry.getKey().toString().length() * 3L + bytes.length;
+			}
+		}
+
+		if (size > Integer.MAX_VALUE) {
+			LOGGER.warning("RRP cache " + this.file + " would be larger than 2GB, it won't be written");
+			return;
+		}
+
+		try {
+			Files.createDirectories(this.directory);
+			Path temp = Files.createTempFile(this.directory, "rrp", ".tmp");
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(FORMAT);
+				output.writeInt(resources.size());
+				for (int i = 0; i < resources.size(); i++) {
+					byte[] id = ids.get(i).toString().getBytes(StandardCharsets.UTF_8);
+					output.writeByte(types.get(i).ordinal());
+					output.writeShort(id.length);
+					output.write(id);
+					output.writeInt(resources.get(i).length);
+				}
+				for (byte[] resource : resources) {
+					output.write(resource);
+				}
+			}
+			Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warning("Unable to write RRP cache " + this.file + ": " + e);
+			return;
+		}
+
+		this.compact();
+	}
+
+	/**
+	 * deletes every cache file of this pack except the current one
+	 */
+	private void compact() {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+			for (Path path : stream) {
+				if (!path.equals(this.file)) {
+					Files.deleteIfExists(path);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warning("Unable to delete stale RRP caches in " + this.directory + ": " + e);
+		}
+	}
+
+	private static final class Entry implements StoredResource {
+		private final ByteBuffer blob;
+		private final int offset;
+		private final int length;
+
+		private Entry(ByteBuffer blob, int offset, int length) {
+			this.blob = blob;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public byte[] get() {
+			byte[] bytes = new byte[this.length];
+			ByteBuffer buffer = this.blob.duplicate();
+			((Buffer) buffer).position(this.offset);
+			buffer.get(bytes);
+			return bytes;
+		}
+
+		@Override
+		public ByteBuffer buffer() {
+			ByteBuffer buffer = this.blob.duplicate();
+			((Buffer) buffer).position(this.offset).limit(this.offset + this.length);
+			return buffer.slice();
+		}
+
+		@Override
+		public int size() {
+			return this.length;
+		}
+
+		@Override
+		public boolean isOnHeap() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package net.devtech.arrp.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * appends resources to a single temporary file and serves them from memory mapped segments of it, so finished
+ * resources live in the page cache instead of the old generation of the heap.
+ * <p>
+ * the file is locked for as long as the store is open. Files left behind by a crash, or that couldn't be deleted
+ * because they were still mapped (windows doesn't allow it), aren't locked by anyone and are deleted at the next start
+ * once they're a few minutes old, a younger file could belong to a store that's being created but isn't locked yet.
+ */
+public class MappedResourceStore implements ResourceStore {
+	private static final Logger LOGGER = Logger.getLogger("RRP");
+	private static final int SEGMENT_SIZE = 64 << 20;
+	private static final String PREFIX = "rrp", SUFFIX = ".store";
+	private static final long STALE_MILLIS = 5 * 60 * 1000;
+	private final Path file;
+	private final FileChannel channel;
+	private ByteBuffer segment;
+	private long end;
+
+	static {
+		deleteStale();
+	}
+
+	public MappedResourceStore() {
+		try {
+			this.file = Files.createTempFile(PREFIX, SUFFIX);
+			this.file.toFile().deleteOnExit();
+			this.channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.channel.lock();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized StoredResource store(byte[] data) {
+		if (!this.channel.isOpen()) {
+			throw new IllegalStateException("store was closed");
+		}
+		try {
+			ByteBuffer region;
+			if (data.length > SEGMENT_SIZE / 4) {
+				// big resources get their own mapping instead of wasting the rest of a segment
+				region = this.map(data.length);
+			} else {
+				if (this.segment == null || this.segment.remaining() < data.length) {
+					this.segment = this.map(SEGMENT_SIZE);
+				}
+				region = this.segment.slice();
+				((Buffer) region).limit(data.length);
+				((Buffer) this.segment).position(this.segment.position() + data.length);
+			}
+			region.put(data);
+			((Buffer) region).flip();
+			return new Mapped(region.asReadOnlyBuffer());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ByteBuffer map(int size) throws IOException {
+		ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, this.end, size);
+		this.end += size;
+		return buffer;
+	}
+
+	/**
+	 * closes and deletes the file, the mappings are released once the resources stored in it are garbage collected
+	 */
+	@Override
+	public synchronized void close() {
+		if (!this.channel.isOpen()) {
+			return;
+		}
+		this.segment = null;
+		try {
+			this.channel.close();
+			Files.deleteIfExists(this.file);
+		} catch (IOException e) {
+			LOGGER.fine("Unable to delete " + this.file + " yet, it's deleted on the next start: " + e);
+		}
+	}
+
+	/**
+	 * deletes the old store files that no running game has locked
+	 */
+	private static void deleteStale() {
+		long cutoff = System.currentTimeMillis() - STALE_MILLIS;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(System.getProperty("java.io.tmpdir")), PREFIX + '*' + SUFFIX)) {
+			for (Path path : stream) {
+				try {
+					if (Files.getLastModifiedTime(path).toMillis() > cutoff) {
+						continue;
+					}
+				} catch (IOException e) {
+					continue;
+				}
+				boolean stale;
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+					FileLock lock = channel.tryLock();
+					stale = lock != null;
+					if (stale) {
+						lock.release();
+					}
+				} catch (IOException | OverlappingFileLockException e) {
+					// in use, or not ours to touch
+					stale = false;
+				}
+				try {
+					if (stale) {
+						Files.deleteIfExists(path);
+					}
+				} catch (IOException e) {
+					LOGGER.fine("Unable to delete stale RRP store " + path + ": " + e);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warning("Unable to delete stale RRP store files: " + e);
+		}
+	}
+
+	private static final class Mapped implements StoredResource {
+		private final ByteBuffer buffer;
+
+		private Mapped(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public byte[] get() {
+			byte[] bytes = new byte[this.buffer.remaining()];
+			this.buffer.duplicate().get(bytes);
+			return bytes;
+		}
+
+		@Override
+		public ByteBuffer buffer() {
+			// the mapping is writable, readers only get to see it
+			return this.buffer.asReadOnlyBuffer();
+		}
+
+		@Override
+		public int size() {
+			return this.buffer.remaining();
+		}
+
+		@Override
+		public boolean isOnHeap() {
+			return false;
+		}
+	}
+}
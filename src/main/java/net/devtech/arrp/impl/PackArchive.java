@@ -0,0 +1,170 @@
+package net.devtech.arrp.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+/**
+ * a runtime resource pack exported to a zip, usually at build time so the resources don't have to be generated on
+ * every launch. The zip is a normal resource and data pack with an extra manifest holding the version key and the hash
+ * of every resource.
+ * <p>
+ * imported resources are read straight out of the zip through its central directory when they're opened, the zip is
+ * never extracted
+ */
+public final class PackArchive {
+	public static final String MANIFEST = "rrp.manifest.json";
+	private static final Logger LOGGER = Logger.getLogger("RRP");
+	private static final int FORMAT = 1;
+
+	private PackArchive() {}
+
+	/**
+	 * @return a manifest without any resources, they're added with {@link #addResource}
+	 */
+	public static JsonObject manifest(Identifier pack, int packVersion, String version) {
+		JsonObject manifest = new JsonObject();
+		manifest.addProperty("format", FORMAT);
+		manifest.addProperty("pack", pack.toString());
+		manifest.addProperty("pack_format", packVersion);
+		manifest.addProperty("version", version);
+		manifest.add("resources", new JsonObject());
+		return manifest;
+	}
+
+	public static void addResource(JsonObject manifest, String name, byte[] data) {
+		manifest.getAsJsonObject("resources").addProperty(name, Long.toHexString(DeduplicatingResourceStore.hash(data)));
+	}
+
+	/**
+	 * registers every resource of the archive in the pack, if it was exported from the same pack with the same
+	 * version key
+	 *
+	 * @return false if the archive is missing, invalid or out of date
+	 */
+	public static boolean read(Path file, RuntimeResourcePackImpl pack, Identifier id, int packVersion, String version) {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+
+		ZipFile zip = null;
+		try {
+			zip = new ZipFile(file.toFile());
+			ZipEntry manifestEntry = zip.getEntry(MANIFEST);
+			if (manifestEntry == null) {
+				LOGGER.warning(file + " is not an RRP archive");
+				zip.close();
+				return false;
+			}
+
+			JsonObject manifest;
+			try (Reader reader = new InputStreamReader(zip.getInputStream(manifestEntry), StandardCharsets.UTF_8)) {
+				manifest = RuntimeResourcePackImpl.GSON.fromJson(reader, JsonObject.class);
+			}
+			if (manifest.get("format").getAsInt() != FORMAT
+			    || !manifest.get("pack").getAsString().equals(id.toString())
+			    || manifest.get("pack_format").getAsInt() != packVersion
+			    || !manifest.get("version").getAsString().equals(version)) {
+				LOGGER.info("RRP archive " + file + " is out of date");
+				zip.close();
+				return false;
+			}
+
+			// every entry is checked before any of them is registered, a bad archive doesn't leave half of it in the pack
+			JsonObject resources = manifest.getAsJsonObject("resources");
+			List<ResourceType> types = new ArrayList<>(resources.size());
+			List<Identifier> ids = new ArrayList<>(resources.size());
+			List<Entry> entries = new ArrayList<>(resources.size());
+			for (Map.Entry<String, JsonElement> resource : resources.entrySet()) {
+				String name = resource.getKey();
+				int namespace = name.indexOf('/'), path = name.indexOf('/', namespace + 1);
+				ResourceType type = name.startsWith(ResourceType.CLIENT_RESOURCES.getDirectory() + '/') ? ResourceType.CLIENT_RESOURCES : ResourceType.SERVER_DATA;
+				ZipEntry entry = zip.getEntry(name);
+				if (entry == null || namespace == -1 || path == -1) {
+					throw new IOException("missing or invalid entry " + name);
+				}
+				types.add(type);
+				ids.add(new Identifier(name.substring(namespace + 1, path), name.substring(path + 1)));
+				entries.add(new Entry(zip, entry, Long.parseUnsignedLong(resource.getValue().getAsString(), 16)));
+			}
+			for (int i = 0; i < entries.size(); i++) {
+				pack.put(types.get(i), ids.get(i), entries.get(i));
+			}
+			pack.getMetrics().recordCacheHits(resources.size());
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warning("Unable to read RRP archive " + file + ": " + e);
+			if (zip != null) {
+				try {
+					zip.close();
+				} catch (IOException ignored) {
+				}
+			}
+			return false;
+		}
+		// left open, the entries read from it for as long as the pack is used
+		return true;
+	}
+
+	private static final class Entry implements StoredResource {
+		private final ZipFile zip;
+		private final ZipEntry entry;
+		private final long hash;
+
+		private Entry(ZipFile zip, ZipEntry entry, long hash) {
+			this.zip = zip;
+			this.entry = entry;
+			this.hash = hash;
+		}
+
+		/**
+		 * reads the resource and checks it against the hash in the manifest, it's also what {@link #open()} reads so
+		 * every resource served from the archive is checked
+		 */
+		@Override
+		public byte[] get() {
+			try (InputStream input = this.zip.getInputStream(this.entry)) {
+				ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max((int) this.entry.getSize(), 32));
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = input.read(buffer)) != -1) {
+					output.write(buffer, 0, read);
+				}
+				byte[] data = output.toByteArray();
+				if (DeduplicatingResourceStore.hash(data) != this.hash) {
+					throw new IllegalStateException(this.entry.getName() + " doesn't match the hash in the manifest of " + this.zip.getName());
+				}
+				return data;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public int size() {
+			return (int) this.entry.getSize();
+		}
+
+		@Override
+		public boolean isOnHeap() {
+			return false;
+		}
+	}
+}
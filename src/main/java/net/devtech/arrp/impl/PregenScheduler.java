@@ -0,0 +1,173 @@
+package net.devtech.arrp.impl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import net.devtech.arrp.api.PregenContext;
+import net.devtech.arrp.api.RRPPreGenEntrypoint;
+import net.devtech.arrp.util.Blocking;
+
+/**
+ * runs the rrp:pregen entrypoints on the RRP executor and keeps track of them, so the first resource reload can wait
+ * for every one of them to finish
+ */
+public final class PregenScheduler {
+	private static final Logger LOGGER = Logger.getLogger("RRP");
+	private static final List<CompletableFuture<Void>> PREGENS = new CopyOnWriteArrayList<>();
+	// startup timeline, in System.nanoTime
+	private static volatile long firstSubmit, reloadStart;
+	private static final LongAdder WAIT_NANOS = new LongAdder();
+	private static final AtomicBoolean REPORTED = new AtomicBoolean();
+
+	private PregenScheduler() {}
+
+	/**
+	 * @return completes once the entrypoint and everything it forked has finished
+	 */
+	public static CompletableFuture<Void> submit(String modId, RRPPreGenEntrypoint entrypoint) {
+		Context context = new Context(modId);
+		long start = System.nanoTime();
+		if (PREGENS.isEmpty()) {
+			firstSubmit = start;
+		}
+		context.fork(() -> entrypoint.pregen(context));
+		CompletableFuture<Void> future = context.done.whenComplete((v, failure) -> {
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			if (failure != null) {
+				LOGGER.severe("pregen of " + modId + " failed after " + millis + "ms: " + failure);
+			} else {
+				LOGGER.info("pregen of " + modId + " took " + millis + "ms");
+			}
+		});
+		PREGENS.add(future);
+		return future;
+	}
+
+	/**
+	 * @return true if every submitted pregen has finished
+	 */
+	public static boolean isDone() {
+		for (CompletableFuture<Void> pregen : PREGENS) {
+			if (!pregen.isDone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return completes once every pregen submitted so far has finished, failed ones included
+	 */
+	public static CompletableFuture<Void> completion() {
+		CompletableFuture<?>[] pregens = PREGENS.stream().map(f -> f.handle((v, t) -> null)).toArray(CompletableFuture[]::new);
+		return CompletableFuture.allOf(pregens);
+	}
+
+	/**
+	 * blocks until every pregen submitted so far has finished, failures were already logged and aren't rethrown
+	 */
+	public static void await() {
+		if (isDone()) {
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			Blocking.get(completion());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+		recordWait(start);
+		LOGGER.info("waited " + (System.nanoTime() - start) / 1_000_000 + "ms for pregen to finish");
+	}
+
+	/**
+	 * called when a resource reload registers the RRP packs. Unless pregen is streamed into the packs, this waits for
+	 * it to finish, otherwise readers of the packs only wait for the resources they ask for.
+	 *
+	 * @param streaming whether the packs can be used while pregen is running
+	 */
+	public static void onReload(boolean streaming) {
+		if (reloadStart == 0) {
+			reloadStart = System.nanoTime();
+			completion().thenRun(PregenScheduler::report);
+		}
+		if (!streaming) {
+			await();
+		}
+	}
+
+	/**
+	 * adds the time since start to the time the game spent waiting on pregen
+	 */
+	public static void recordWait(long start) {
+		WAIT_NANOS.add(System.nanoTime() - start);
+	}
+
+	/**
+	 * logs how much of pregen ran alongside the game's bootstrap, before the first reload
+	 */
+	private static void report() {
+		if (PREGENS.isEmpty() || !REPORTED.compareAndSet(false, true)) {
+			return;
+		}
+		long end = System.nanoTime(), total = end - firstSubmit, hidden = Math.min(end, reloadStart) - firstSubmit;
+		LOGGER.info(String.format("pregen took %dms, %dms of it overlapped the game's bootstrap, the first reload waited %dms for it",
+				total / 1_000_000,
+				Math.max(hidden, 0) / 1_000_000,
+				WAIT_NANOS.sum() / 1_000_000));
+	}
+
+	private static final class Context implements PregenContext {
+		private final String modId;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+		// tasks forked and not yet finished, done completes when it reaches 0
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		private Context(String modId) {
+			this.modId = modId;
+		}
+
+		@Override
+		public CompletableFuture<Void> fork(Runnable task) {
+			if (this.done.isDone()) {
+				throw new IllegalStateException("pregen of " + this.modId + " has already finished");
+			}
+			this.running.incrementAndGet();
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			RRPExecutors.execute(RuntimeResourcePackImpl.EXECUTOR_SERVICE, () -> {
+				try {
+					task.run();
+					future.complete(null);
+				} catch (Throwable t) {
+					this.failure.compareAndSet(null, t);
+					future.completeExceptionally(t);
+				} finally {
+					if (this.running.decrementAndGet() == 0) {
+						Throwable failure = this.failure.get();
+						if (failure == null) {
+							this.done.complete(null);
+						} else {
+							this.done.completeExceptionally(failure);
+						}
+					}
+				}
+			});
+			return future;
+		}
+
+		@Override
+		public String getModId() {
+			return this.modId;
+		}
+	}
+}
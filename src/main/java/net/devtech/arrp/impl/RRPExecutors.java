@@ -0,0 +1,88 @@
+package net.devtech.arrp.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.logging.Logger;
+
+/**
+ * the executors RRP can generate resources on, picked with the "executor" key of rrp.properties
+ */
+public final class RRPExecutors {
+	/**
+	 * a fixed pool of platform threads, tasks that block on other tasks can starve it
+	 */
+	public static final String FIXED = "fixed";
+	/**
+	 * a work stealing pool, tasks forked from inside a task are run by the same worker unless another one steals them,
+	 * and workers that block on a future are compensated with a spare thread
+	 */
+	public static final String FORK_JOIN = "forkjoin";
+	/**
+	 * a thread per task, only on java versions that have virtual threads, otherwise a work stealing pool is used
+	 */
+	public static final String VIRTUAL = "virtual";
+
+	private static final Logger LOGGER = Logger.getLogger("RRP");
+
+	private RRPExecutors() {}
+
+	/**
+	 * @param threads the number of threads, or a value less than 1 to size the pool to the machine
+	 */
+	public static ExecutorService create(String strategy, int threads) {
+		switch (strategy.toLowerCase()) {
+		case FIXED:
+			return Executors.newFixedThreadPool(threads > 0 ? threads : Math.max(Runtime.getRuntime().availableProcessors() / 2 - 1, 1));
+		case VIRTUAL:
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				LOGGER.info("virtual threads are not supported on this java version, using a fork join pool instead");
+			}
+			// fall through
+		case FORK_JOIN:
+			return forkJoin(threads > 0 ? threads : defaultThreads());
+		default:
+			LOGGER.warning("Unknown RRP executor " + strategy + ", using a fork join pool instead");
+			return forkJoin(threads > 0 ? threads : defaultThreads());
+		}
+	}
+
+	/**
+	 * @return one less than the core count so the main thread keeps a core to itself, at least 1. Workers that block
+	 * are compensated by the pool, so it doesn't need headroom for them
+	 */
+	public static int defaultThreads() {
+		return Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+	}
+
+	/**
+	 * @return true if the current thread is a worker of the executor, so tasks it submits can be forked instead
+	 */
+	public static boolean isWorker(ExecutorService executor) {
+		Thread thread = Thread.currentThread();
+		return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == executor;
+	}
+
+	/**
+	 * runs the task on the executor, forking it instead when called from one of the executor's workers
+	 */
+	public static void execute(ExecutorService executor, Runnable task) {
+		if (isWorker(executor)) {
+			ForkJoinTask.adapt(task).fork();
+		} else {
+			executor.execute(task);
+		}
+	}
+
+	private static ForkJoinPool forkJoin(int parallelism) {
+		return new ForkJoinPool(parallelism, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("RRP Worker-" + thread.getPoolIndex());
+			return thread;
+		}, (thread, throwable) -> LOGGER.severe("Uncaught exception in " + thread.getName() + ": " + throwable), false);
+	}
+}
@@ -0,0 +1,122 @@
+package net.devtech.arrp.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import net.minecraft.util.Identifier;
+
+/**
+ * a namespace -> path segment trie over the identifiers of a runtime resource pack, prefix queries only walk the
+ * matching subtree instead of every key in the pack
+ */
+public class ResourceIndex {
+	private final Map<String, Node> namespaces = new ConcurrentHashMap<>();
+	private final Set<String> namespaceView = Collections.unmodifiableSet(this.namespaces.keySet());
+
+	public void add(Identifier identifier) {
+		Node node = this.namespaces.computeIfAbsent(identifier.getNamespace(), s -> new Node());
+		String path = identifier.getPath();
+		int start = 0, end;
+		while ((end = path.indexOf('/', start)) != -1) {
+			node = node.child(path.substring(start, end));
+			start = end + 1;
+		}
+		node.child(path.substring(start)).identifier = identifier;
+	}
+
+	/**
+	 * removes the identifier, the nodes along its path are kept so adding it again doesn't allocate
+	 */
+	public void remove(Identifier identifier) {
+		Node node = this.namespaces.get(identifier.getNamespace());
+		String path = identifier.getPath();
+		int start = 0, end;
+		while (node != null && (end = path.indexOf('/', start)) != -1) {
+			node = node.get(path.substring(start, end));
+			start = end + 1;
+		}
+		if (node != null && (node = node.get(path.substring(start))) != null) {
+			node.identifier = null;
+		}
+	}
+
+	/**
+	 * @param prefix a path prefix, the last segment may be partial, which matches every sibling that starts with it
+	 * @param maxDepth the maximum number of segments below the one that completes the prefix
+	 * @param pathFilter tested against the full path of each resource
+	 */
+	public void find(String namespace,
+			String prefix,
+			int maxDepth,
+			Predicate<String> pathFilter,
+			Collection<Identifier> identifiers) {
+		Node node = this.namespaces.get(namespace);
+		int start = 0, end;
+		while (node != null && (end = prefix.indexOf('/', start)) != -1) {
+			node = node.get(prefix.substring(start, end));
+			start = end + 1;
+		}
+
+		if (node != null && node.children != null) {
+			String partial = prefix.substring(start);
+			for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+				if (entry.getKey().startsWith(partial)) {
+					collect(entry.getValue(), 0, maxDepth, pathFilter, identifiers);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a live, unmodifiable view of the namespaces in the index
+	 */
+	public Set<String> getNamespaces() {
+		return this.namespaceView;
+	}
+
+	private static void collect(Node node,
+			int depth,
+			int maxDepth,
+			Predicate<String> pathFilter,
+			Collection<Identifier> identifiers) {
+		Identifier identifier = node.identifier;
+		if (identifier != null && pathFilter.test(identifier.getPath())) {
+			identifiers.add(identifier);
+		}
+
+		Map<String, Node> children = node.children;
+		if (children != null && depth < maxDepth) {
+			for (Node child : children.values()) {
+				collect(child, depth + 1, maxDepth, pathFilter, identifiers);
+			}
+		}
+	}
+
+	private static final class Node {
+		// most nodes are leaves, so the child map is only allocated once it's needed
+		private volatile Map<String, Node> children;
+		private volatile Identifier identifier;
+
+		Node get(String segment) {
+			Map<String, Node> children = this.children;
+			return children == null ? null : children.get(segment);
+		}
+
+		Node child(String segment) {
+			Map<String, Node> children = this.children;
+			if (children == null) {
+				synchronized (this) {
+					children = this.children;
+					if (children == null) {
+						this.children = children = new ConcurrentHashMap<>(4);
+					}
+				}
+			}
+			return children.computeIfAbsent(segment, s -> new Node());
+		}
+	}
+}
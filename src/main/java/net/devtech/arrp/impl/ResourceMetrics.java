@@ -0,0 +1,382 @@
+package net.devtech.arrp.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+/**
+ * where the time spent on a pack's resources goes, per resource and per category (the first directory of the path,
+ * eg. models or recipes). Apart from the resources opened during each reload and the deduplication of the pack's
+ * stores, nothing is recorded unless it's enabled, the hooks are then a field read.
+ */
+public class ResourceMetrics implements ResourceMetricsMXBean {
+	private static final Logger LOGGER = Logger.getLogger("RRP");
+	private static final long[] WAIT_BUCKETS = {1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+	public enum Stage {
+		/**
+		 * user code run for async and lazy resources
+		 */
+		GENERATE,
+		/**
+		 * J* objects and templates written to json
+		 */
+		SERIALIZE,
+		/**
+		 * images encoded to png
+		 */
+		ENCODE
+	}
+
+	private final Identifier pack;
+	private final boolean enabled;
+	private final Map<Key, Stat> categories = new ConcurrentHashMap<>();
+	private final Map<Key, Stat> resources = new ConcurrentHashMap<>();
+	private final LongAdder lazyEvaluations = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder[] waits = new LongAdder[WAIT_BUCKETS.length + 1];
+	private final LongAdder waitNanos = new LongAdder();
+	// since the last reload started, always counted
+	private final LongAdder opens = new LongAdder();
+	private final LongAdder bytesServed = new LongAdder();
+	private boolean registered;
+	// the stores of the pack that deduplicate, their counters are read when asked for
+	private final List<DeduplicatingResourceStore> deduplicators = new CopyOnWriteArrayList<>();
+
+	public ResourceMetrics(Identifier pack, boolean enabled) {
+		this.pack = pack;
+		this.enabled = enabled;
+		for (int i = 0; i < this.waits.length; i++) {
+			this.waits[i] = new LongAdder();
+		}
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * @return the start time to pass to {@link #record}
+	 */
+	public long start() {
+		return this.enabled ? System.nanoTime() : 0;
+	}
+
+	public void record(Stage stage, ResourceType type, Identifier path, long start, int bytes) {
+		if (!this.enabled) {
+			return;
+		}
+		long nanos = System.nanoTime() - start;
+		String full = path.getPath();
+		int slash = full.indexOf('/');
+		this.categories.computeIfAbsent(new Key(stage, type, slash == -1 ? full : full.substring(0, slash)), k -> new Stat()).add(nanos, bytes);
+		this.resources.computeIfAbsent(new Key(stage, type, path), k -> new Stat()).add(nanos, bytes);
+	}
+
+	public void recordLazyEvaluation() {
+		if (this.enabled) {
+			this.lazyEvaluations.increment();
+		}
+	}
+
+	public void recordCacheHits(int count) {
+		if (this.enabled) {
+			this.cacheHits.add(count);
+		}
+	}
+
+	public void recordWait(long start) {
+		if (!this.enabled) {
+			return;
+		}
+		long nanos = System.nanoTime() - start;
+		int bucket = 0;
+		while (bucket < WAIT_BUCKETS.length && nanos >= WAIT_BUCKETS[bucket]) {
+			bucket++;
+		}
+		this.waits[bucket].increment();
+		this.waitNanos.add(nanos);
+	}
+
+	/**
+	 * includes the deduplication of the store in these metrics, always counted
+	 */
+	public void track(DeduplicatingResourceStore store) {
+		if (!this.deduplicators.contains(store)) {
+			this.deduplicators.add(store);
+		}
+	}
+
+	public void recordServed(int bytes) {
+		this.opens.increment();
+		this.bytesServed.add(bytes);
+	}
+
+	/**
+	 * resets the per reload counters
+	 */
+	public void startReload() {
+		this.opens.reset();
+		this.bytesServed.reset();
+	}
+
+	/**
+	 * makes the metrics visible over JMX
+	 */
+	public synchronized void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, this.name());
+			this.registered = true;
+		} catch (JMException e) {
+			LOGGER.warning("Unable to register the metrics of " + this.pack + " with JMX: " + e);
+		}
+	}
+
+	/**
+	 * removes the metrics from JMX, if they were registered
+	 */
+	public synchronized void unregister() {
+		if (!this.registered) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name());
+			this.registered = false;
+		} catch (JMException e) {
+			LOGGER.warning("Unable to unregister the metrics of " + this.pack + " from JMX: " + e);
+		}
+	}
+
+	private ObjectName name() throws MalformedObjectNameException {
+		return new ObjectName("net.devtech.arrp:type=RuntimeResourcePack,name=" + ObjectName.quote(this.pack.toString()));
+	}
+
+	@Override
+	public Map<String, Long> getCategoryNanos() {
+		Map<String, Long> nanos = new TreeMap<>();
+		this.categories.forEach((key, stat) -> nanos.put(key.toString(), stat.nanos.sum()));
+		return nanos;
+	}
+
+	@Override
+	public Map<String, Long> getCategoryBytes() {
+		Map<String, Long> bytes = new TreeMap<>();
+		this.categories.forEach((key, stat) -> bytes.put(key.toString(), stat.bytes.sum()));
+		return bytes;
+	}
+
+	@Override
+	public long getTotalNanos() {
+		long total = 0;
+		for (Stat stat : this.categories.values()) {
+			total += stat.nanos.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public long getTotalBytes() {
+		long total = 0;
+		for (Stat stat : this.categories.values()) {
+			total += stat.bytes.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public long getLazyEvaluations() {
+		return this.lazyEvaluations.sum();
+	}
+
+	@Override
+	public long getCacheHits() {
+		return this.cacheHits.sum();
+	}
+
+	@Override
+	public long[] getWaitHistogram() {
+		long[] histogram = new long[this.waits.length];
+		for (int i = 0; i < histogram.length; i++) {
+			histogram[i] = this.waits[i].sum();
+		}
+		return histogram;
+	}
+
+	@Override
+	public long getWaitNanos() {
+		return this.waitNanos.sum();
+	}
+
+	@Override
+	public long getDeduplicated() {
+		long deduplicated = 0;
+		for (DeduplicatingResourceStore store : this.deduplicators) {
+			deduplicated += store.getDeduplicatedCount();
+		}
+		return deduplicated;
+	}
+
+	@Override
+	public long getBytesDeduplicated() {
+		long saved = 0;
+		for (DeduplicatingResourceStore store : this.deduplicators) {
+			saved += store.getBytesSaved();
+		}
+		return saved;
+	}
+
+	@Override
+	public long getOpens() {
+		return this.opens.sum();
+	}
+
+	@Override
+	public long getBytesServed() {
+		return this.bytesServed.sum();
+	}
+
+	/**
+	 * writes (name).metrics.json with the totals of every category and (name).metrics.csv with every resource
+	 */
+	public void writeReport(Path directory, String name) throws IOException {
+		Files.createDirectories(directory);
+		JsonObject report = new JsonObject();
+		report.addProperty("pack", this.pack.toString());
+		report.addProperty("total_ms", this.getTotalNanos() / 1_000_000D);
+		report.addProperty("total_bytes", this.getTotalBytes());
+		report.addProperty("lazy_evaluations", this.getLazyEvaluations());
+		report.addProperty("cache_hits", this.getCacheHits());
+		report.addProperty("wait_ms", this.getWaitNanos() / 1_000_000D);
+		report.addProperty("deduplicated", this.getDeduplicated());
+		report.addProperty("deduplicated_bytes", this.getBytesDeduplicated());
+		report.addProperty("opens_last_reload", this.getOpens());
+		report.addProperty("bytes_served_last_reload", this.getBytesServed());
+		JsonArray histogram = new JsonArray();
+		for (long count : this.getWaitHistogram()) {
+			histogram.add(count);
+		}
+		report.add("waits_under_1ms_10ms_100ms_1s_over", histogram);
+		JsonArray categories = new JsonArray();
+		for (Map.Entry<Key, Stat> entry : this.sorted(this.categories)) {
+			JsonObject category = new JsonObject();
+			category.addProperty("stage", entry.getKey().stage.name().toLowerCase());
+			category.addProperty("type", entry.getKey().type.getDirectory());
+			category.addProperty("category", entry.getKey().name.toString());
+			category.addProperty("count", entry.getValue().count.sum());
+			category.addProperty("ms", entry.getValue().nanos.sum() / 1_000_000D);
+			category.addProperty("bytes", entry.getValue().bytes.sum());
+			categories.add(category);
+		}
+		report.add("categories", categories);
+		try (Writer writer = Files.newBufferedWriter(directory.resolve(name + ".metrics.json"), StandardCharsets.UTF_8)) {
+			RuntimeResourcePackImpl.GSON.toJson(report, writer);
+		}
+
+		try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(name + ".metrics.csv"), StandardCharsets.UTF_8)) {
+			writer.write("stage,type,namespace,path,count,nanos,bytes");
+			writer.newLine();
+			for (Map.Entry<Key, Stat> entry : this.sorted(this.resources)) {
+				Key key = entry.getKey();
+				Identifier id = (Identifier) key.name;
+				Stat stat = entry.getValue();
+				writer.write(key.stage.name().toLowerCase() + ',' + key.type.getDirectory() + ',' + id.getNamespace() + ',' + id.getPath() + ',' + stat.count.sum() + ',' + stat.nanos.sum() + ',' + stat.bytes.sum());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * @return the entries, slowest first
+	 */
+	private List<Map.Entry<Key, Stat>> sorted(Map<Key, Stat> stats) {
+		List<Map.Entry<Key, Stat>> entries = new ArrayList<>(stats.entrySet());
+		entries.sort((a, b) -> Long.compare(b.getValue().nanos.sum(), a.getValue().nanos.sum()));
+		return entries;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(String.format("%.1fms generating %d bytes, %d lazy evaluations, %d cache hits, %.1fms waiting",
+				this.getTotalNanos() / 1_000_000D,
+				this.getTotalBytes(),
+				this.getLazyEvaluations(),
+				this.getCacheHits(),
+				this.getWaitNanos() / 1_000_000D));
+		List<Map.Entry<Key, Stat>> categories = this.sorted(this.categories);
+		for (int i = 0; i < Math.min(5, categories.size()); i++) {
+			Map.Entry<Key, Stat> entry = categories.get(i);
+			builder.append(String.format("; %s %.1fms", entry.getKey(), entry.getValue().nanos.sum() / 1_000_000D));
+		}
+		return builder.toString();
+	}
+
+	private static final class Key {
+		private final Stage stage;
+		private final ResourceType type;
+		// the category or the resource id
+		private final Object name;
+
+		private Key(Stage stage, ResourceType type, Object name) {
+			this.stage = stage;
+			this.type = type;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return this.stage == key.stage && this.type == key.type && this.name.equals(key.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.stage, this.type, this.name);
+		}
+
+		@Override
+		public String toString() {
+			return this.stage.name().toLowerCase() + ' ' + this.type.getDirectory() + '/' + this.name;
+		}
+	}
+
+	private static final class Stat {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+
+		private void add(long nanos, int bytes) {
+			this.count.increment();
+			this.nanos.add(nanos);
+			this.bytes.add(bytes);
+		}
+	}
+}
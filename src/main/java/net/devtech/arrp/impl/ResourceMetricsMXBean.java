@@ -0,0 +1,64 @@
+package net.devtech.arrp.impl;
+
+import java.util.Map;
+
+/**
+ * the metrics of a runtime resource pack as seen over JMX, registered as
+ * net.devtech.arrp:type=RuntimeResourcePack,name="(pack id)" when "debug performance" is enabled
+ */
+public interface ResourceMetricsMXBean {
+	/**
+	 * @return the time spent on each category of resource in each stage, in nanoseconds, keyed by "stage type/category"
+	 * eg. "serialize assets/models"
+	 */
+	Map<String, Long> getCategoryNanos();
+
+	/**
+	 * @return the bytes produced by each category, keyed like {@link #getCategoryNanos()}
+	 */
+	Map<String, Long> getCategoryBytes();
+
+	long getTotalNanos();
+
+	long getTotalBytes();
+
+	/**
+	 * @return the number of lazy resources that were evaluated
+	 */
+	long getLazyEvaluations();
+
+	/**
+	 * @return the number of resources restored from a generation cache or archive instead of being generated
+	 */
+	long getCacheHits();
+
+	/**
+	 * @return the number of waits for async resources that took under 1ms, 10ms, 100ms, 1s and longer
+	 */
+	long[] getWaitHistogram();
+
+	/**
+	 * @return the total time spent waiting for async resources, in nanoseconds
+	 */
+	long getWaitNanos();
+
+	/**
+	 * @return the number of resources that shared an already stored copy instead of being stored again
+	 */
+	long getDeduplicated();
+
+	/**
+	 * @return the bytes not stored thanks to deduplication
+	 */
+	long getBytesDeduplicated();
+
+	/**
+	 * @return the number of resources opened since the last reload started
+	 */
+	long getOpens();
+
+	/**
+	 * @return the bytes of the resources opened since the last reload started
+	 */
+	long getBytesServed();
+}
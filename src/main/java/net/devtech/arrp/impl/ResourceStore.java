@@ -0,0 +1,24 @@
+package net.devtech.arrp.impl;
+
+/**
+ * where a runtime resource pack keeps the bytes of its finished resources
+ *
+ * @see RuntimeResourcePackImpl#setStore(net.minecraft.resource.ResourceType, ResourceStore)
+ */
+public interface ResourceStore extends AutoCloseable {
+	/**
+	 * keeps every resource as a byte[] on the heap
+	 */
+	ResourceStore HEAP = data -> () -> data;
+
+	/**
+	 * @param data the resource, the store may keep a reference to it
+	 */
+	StoredResource store(byte[] data);
+
+	/**
+	 * releases whatever the store holds outside of the heap, its resources can't be read afterwards
+	 */
+	@Override
+	default void close() {}
+}
@@ -0,0 +1,31 @@
+package net.devtech.arrp.impl;
+
+/**
+ * what a runtime resource pack does with its resources once a resource reload has finished with them
+ *
+ * @see RuntimeResourcePackImpl#setRetention(net.minecraft.resource.ResourceType, RetentionPolicy)
+ */
+public enum RetentionPolicy {
+	/**
+	 * resources stay where they are
+	 */
+	KEEP,
+	/**
+	 * resources on the heap are moved to a memory mapped file, which the os can write out and page back in on the
+	 * next reload
+	 */
+	SPILL,
+	/**
+	 * lazy resources forget their value and are generated again on the next reload, everything else is spilled
+	 */
+	DROP;
+
+	public static RetentionPolicy of(String name) {
+		for (RetentionPolicy policy : values()) {
+			if (policy.name().equalsIgnoreCase(name)) {
+				return policy;
+			}
+		}
+		throw new IllegalArgumentException("unknown retention policy " + name + ", expected keep, spill or drop");
+	}
+}
@@ -3,32 +3,51 @@ package net.devtech.arrp.impl;
 import static java.lang.String.valueOf;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.function.IntUnaryOperator;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.imageio.ImageIO;
 
@@ -37,6 +56,7 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import net.devtech.arrp.ARRP;
 import net.devtech.arrp.api.RuntimeResourcePack;
+import net.devtech.arrp.json.JTemplate;
 import net.devtech.arrp.json.animation.JAnimation;
 import net.devtech.arrp.json.blockstate.JMultipart;
 import net.devtech.arrp.json.blockstate.JState;
@@ -47,6 +67,7 @@ import net.devtech.arrp.json.loot.JCondition;
 import net.devtech.arrp.json.loot.JFunction;
 import net.devtech.arrp.json.loot.JLootTable;
 import net.devtech.arrp.json.loot.JPool;
+import net.devtech.arrp.json.meta.JPackMeta;
 import net.devtech.arrp.json.models.JModel;
 import net.devtech.arrp.json.models.JTextures;
 import net.devtech.arrp.json.recipe.JIngredient;
@@ -55,8 +76,13 @@ import net.devtech.arrp.json.recipe.JKeys;
 import net.devtech.arrp.json.recipe.JPattern;
 import net.devtech.arrp.json.recipe.JRecipe;
 import net.devtech.arrp.json.tags.JTag;
+import net.devtech.arrp.util.Blocking;
+import net.devtech.arrp.util.ByteBufferInputStream;
 import net.devtech.arrp.util.CallableFunction;
-import net.devtech.arrp.util.CountingInputStream;
+import net.devtech.arrp.util.ImageUtil;
+import net.devtech.arrp.util.Lazy;
+import net.devtech.arrp.util.PngEncoder;
+import net.devtech.arrp.util.StreamSerializerFactory;
 import net.devtech.arrp.util.UnsafeByteArrayOutputStream;
 
 import net.minecraft.resource.ResourcePack;
@@ -71,124 +97,351 @@ import net.minecraft.util.Identifier;
 public class RuntimeResourcePackImpl implements RuntimeResourcePack, ResourcePack {
 	public static final ExecutorService EXECUTOR_SERVICE;
 	public static final boolean DUMP;
+	/**
+	 * whether dumped packs are written as a zip that can be used as a resource and data pack
+	 */
+	public static final boolean DUMP_ZIP;
 	public static final boolean DEBUG_PERFORMANCE;
+	/**
+	 * whether json is written by the streaming J* adapters rather than built as a JsonElement tree first
+	 */
+	public static final boolean COMPACT_JSON;
+	/**
+	 * whether new packs store their finished resources in a memory mapped file instead of on the heap
+	 */
+	public static final boolean MAPPED_STORAGE;
+	/**
+	 * whether new packs share one copy between resources with identical bytes
+	 */
+	public static final boolean DEDUPLICATE;
+	/**
+	 * the resource types new packs compress
+	 */
+	public static final Set<ResourceType> COMPRESS;
+	/**
+	 * resources smaller than this aren't compressed
+	 */
+	public static final int COMPRESSION_THRESHOLD;
+	/**
+	 * what new packs do with their resources after a reload
+	 */
+	public static final RetentionPolicy ASSET_RETENTION, DATA_RETENTION;
+	/**
+	 * whether resource reloads can start while pregen is still running, readers then wait for the resources they ask
+	 * for instead of the reload waiting for all of pregen
+	 */
+	public static final boolean STREAMING_PREGEN;
 
-	// @formatter:off
-	public static final Gson GSON = new GsonBuilder()
-									 .setPrettyPrinting()
-									 .disableHtmlEscaping()
-									 .registerTypeAdapter(JMultipart.class, new JMultipart.Serializer())
-									 .registerTypeAdapter(JWhen.class, new JWhen.Serializer())
-									 .registerTypeAdapter(JState.class, new JState.Serializer())
-									 .registerTypeAdapter(JVariant.class, new JVariant.Serializer())
-									 .registerTypeAdapter(JTextures.class, new JTextures.Serializer())
-									 .registerTypeAdapter(JAnimation.class, new JAnimation.Serializer())
-									 .registerTypeAdapter(JFunction.class, new JFunction.Serializer())
-									 .registerTypeAdapter(JPool.class, new JPool.Serializer())
-									 .registerTypeAdapter(JPattern.class, new JPattern.Serializer())
-									 .registerTypeAdapter(JKeys.class, new JKeys.Serializer())
-									 .registerTypeAdapter(JIngredient.class, new JIngredient.Serializer())
-									 .registerTypeAdapter(JIngredients.class, new JIngredients.Serializer())
-									 .registerTypeAdapter(Identifier.class, new Identifier.Serializer())
-									 .registerTypeAdapter(JCondition.class, new JCondition.Serializer())
-									 .create();
-	// @formatter:on
+	public static final Gson GSON;
+	// dumped textures are kept, so they're worth compressing harder
+	private static final int PNG_LEVEL;
 	private static final Logger LOGGER = Logger.getLogger("RRP");
+	private static final Map<String, String> NAMESPACES = new ConcurrentHashMap<>();
 
 	static {
 		Properties properties = new Properties();
-		int processors = Math.max(Runtime.getRuntime().availableProcessors() / 2 - 1, 1);
+		int processors = 0;
+		String executor = RRPExecutors.FORK_JOIN;
 		boolean dump = false;
+		boolean dumpZip = false;
 		boolean performance = false;
-		properties.setProperty("threads", valueOf(processors));
+		boolean compact = true;
+		boolean mapped = false;
+		boolean deduplicate = true;
+		String compress = "none";
+		int threshold = 512;
+		RetentionPolicy assetRetention = RetentionPolicy.KEEP, dataRetention = RetentionPolicy.KEEP;
+		boolean streaming = false;
+		properties.setProperty("threads", "auto");
+		properties.setProperty("executor", executor);
 		properties.setProperty("dump assets", "false");
+		properties.setProperty("dump zip", "false");
 		properties.setProperty("debug performance", "false");
+		properties.setProperty("compact json", "true");
+		properties.setProperty("storage", "heap");
+		properties.setProperty("deduplicate", "true");
+		properties.setProperty("compress", compress);
+		properties.setProperty("compression threshold", valueOf(threshold));
+		properties.setProperty("asset retention", "keep");
+		properties.setProperty("data retention", "keep");
+		properties.setProperty("streaming pregen", "false");
 
 		File file = new File("config/rrp.properties");
 		try (FileReader reader = new FileReader(file)) {
 			properties.load(reader);
-			processors = Integer.parseInt(properties.getProperty("threads"));
+			String threads = properties.getProperty("threads");
+			processors = "auto".equalsIgnoreCase(threads) ? 0 : Integer.parseInt(threads);
+			executor = properties.getProperty("executor", executor);
 			dump = Boolean.parseBoolean(properties.getProperty("dump assets"));
+			dumpZip = Boolean.parseBoolean(properties.getProperty("dump zip", "false"));
 			performance = Boolean.parseBoolean(properties.getProperty("debug performance"));
+			compact = Boolean.parseBoolean(properties.getProperty("compact json", "true"));
+			mapped = "mapped".equalsIgnoreCase(properties.getProperty("storage", "heap"));
+			deduplicate = Boolean.parseBoolean(properties.getProperty("deduplicate", "true"));
+			compress = properties.getProperty("compress", compress);
+			threshold = Integer.parseInt(properties.getProperty("compression threshold", valueOf(threshold)));
+			assetRetention = RetentionPolicy.of(properties.getProperty("asset retention", "keep"));
+			dataRetention = RetentionPolicy.of(properties.getProperty("data retention", "keep"));
+			streaming = Boolean.parseBoolean(properties.getProperty("streaming pregen", "false"));
 		} catch (Throwable t) {
 			LOGGER.warning("Invalid config, creating new one!");
 			file.getParentFile().mkdirs();
 			try (FileWriter writer = new FileWriter(file)) {
-				properties.store(writer, "number of threads RRP should use for generating resources");
+				properties.store(writer, "number of threads RRP should use for generating resources (or auto, one less than the core count), executor is fixed, forkjoin or virtual");
 			} catch (IOException ex) {
 				LOGGER.severe("Unable to write to RRP config!");
 				ex.printStackTrace();
 			}
 		}
-		EXECUTOR_SERVICE = Executors.newFixedThreadPool(processors);
+		EXECUTOR_SERVICE = RRPExecutors.create(executor, processors);
 		DUMP = dump;
+		DUMP_ZIP = dumpZip;
 		DEBUG_PERFORMANCE = performance;
+		COMPACT_JSON = compact;
+		MAPPED_STORAGE = mapped;
+		DEDUPLICATE = deduplicate;
+		Set<ResourceType> compressed = EnumSet.noneOf(ResourceType.class);
+		if ("assets".equalsIgnoreCase(compress) || "both".equalsIgnoreCase(compress)) {
+			compressed.add(ResourceType.CLIENT_RESOURCES);
+		}
+		if ("data".equalsIgnoreCase(compress) || "both".equalsIgnoreCase(compress)) {
+			compressed.add(ResourceType.SERVER_DATA);
+		}
+		COMPRESS = Collections.unmodifiableSet(compressed);
+		COMPRESSION_THRESHOLD = threshold;
+		ASSET_RETENTION = assetRetention;
+		DATA_RETENTION = dataRetention;
+		STREAMING_PREGEN = streaming;
+		// only pretty print when someone is going to read the dumped assets
+		GSON = createGson(compact, dump || !compact);
+		PNG_LEVEL = dump ? PngEncoder.SMALL : PngEncoder.FAST;
 	}
 
 	public final int packVersion;
 	private final Identifier id;
-	private final Lock waiting = new ReentrantLock();
+	// pack.mcmeta, parsed sections are kept by key since minecraft asks for them on every reload
+	private final JsonObject metadata;
+	private final byte[] mcmeta;
+	private final Map<String, Object> parsedMetadata = new ConcurrentHashMap<>();
+	// the async batches still running, readers only wait for the ones that were pending when they arrived
+	private final Set<CompletableFuture<Void>> waiting = ConcurrentHashMap.newKeySet();
 	private final Map<Identifier, Supplier<byte[]>> data = new ConcurrentHashMap<>();
 	private final Map<Identifier, Supplier<byte[]>> assets = new ConcurrentHashMap<>();
+	private final ResourceIndex dataIndex = new ResourceIndex();
+	private final ResourceIndex assetIndex = new ResourceIndex();
+	private volatile ResourceStore dataStore;
+	// the heap or mapped store under the compressing and deduplicating ones
+	private final ResourceStore baseStore;
+	private volatile ResourceStore assetStore;
+	private final Map<InputStream, SharedImage> images = new IdentityHashMap<>();
+	// the generation of the last change to each resource, only tracked once the pack has been reloaded once
+	private final Map<Identifier, Long> dataChanges = new ConcurrentHashMap<>();
+	private final Map<Identifier, Long> assetChanges = new ConcurrentHashMap<>();
+	// readers waiting for a resource pregen hasn't produced yet, only used when pregen is streamed
+	private final Map<Identifier, CompletableFuture<Void>> dataArrivals = new ConcurrentHashMap<>();
+	private final Map<Identifier, CompletableFuture<Void>> assetArrivals = new ConcurrentHashMap<>();
+	private final AtomicLong generation = new AtomicLong();
+	private volatile long reloadGeneration = -1;
+	private volatile RetentionPolicy assetRetention = ASSET_RETENTION;
+	private volatile RetentionPolicy dataRetention = DATA_RETENTION;
+	// where spilled resources go, only created once something is spilled
+	private ResourceStore spillStore;
+	// set by loadCache, written on the first close if it wasn't restored
+	private GenerationCache cache;
+	private boolean cacheUpToDate;
+	private final ResourceMetrics metrics;
 
 	public RuntimeResourcePackImpl(Identifier id) {
 		this(id, 5);
 	}
 
 	public RuntimeResourcePackImpl(Identifier id, int version) {
+		this(id, version, JPackMeta.meta("runtime resource pack"));
+	}
+
+	public RuntimeResourcePackImpl(Identifier id, int version, JPackMeta meta) {
 		this.packVersion = version;
 		this.id = id;
+		this.metadata = meta.toJson(version);
+		this.mcmeta = GSON.toJson(this.metadata).getBytes(StandardCharsets.UTF_8);
+		this.metrics = new ResourceMetrics(id, DEBUG_PERFORMANCE);
+		if (DEBUG_PERFORMANCE) {
+			this.metrics.register();
+		}
+		this.baseStore = MAPPED_STORAGE ? new MappedResourceStore() : ResourceStore.HEAP;
+		this.assetStore = this.track(this.createStore(COMPRESS.contains(ResourceType.CLIENT_RESOURCES) ? COMPRESSION_THRESHOLD : -1));
+		this.dataStore = this.track(this.createStore(COMPRESS.contains(ResourceType.SERVER_DATA) ? COMPRESSION_THRESHOLD : -1));
+	}
+
+	/**
+	 * @param threshold the size from which resources are compressed, or -1 to not compress them
+	 */
+	private ResourceStore createStore(int threshold) {
+		ResourceStore store = this.baseStore;
+		if (threshold >= 0) {
+			store = new CompressingResourceStore(store, threshold, Deflater.BEST_SPEED);
+		}
+		return DEDUPLICATE ? new DeduplicatingResourceStore(store) : store;
+	}
+
+	@Override
+	public void setCompression(ResourceType type, int threshold) {
+		this.setStore(type, this.createStore(threshold));
+	}
+
+	/**
+	 * @return the store, after adding its deduplication to the metrics if it deduplicates
+	 */
+	private ResourceStore track(ResourceStore store) {
+		if (store instanceof DeduplicatingResourceStore) {
+			this.metrics.track((DeduplicatingResourceStore) store);
+		}
+		return store;
+	}
+
+	/**
+	 * sets where resources of the given type added from now on are kept
+	 */
+	public void setStore(ResourceType type, ResourceStore store) {
+		this.track(store);
+		if (type == ResourceType.CLIENT_RESOURCES) {
+			this.assetStore = store;
+		} else {
+			this.dataStore = store;
+		}
+	}
+
+	/**
+	 * sets what happens to resources of the given type once a resource reload is done with them
+	 */
+	public void setRetention(ResourceType type, RetentionPolicy policy) {
+		if (type == ResourceType.CLIENT_RESOURCES) {
+			this.assetRetention = policy;
+		} else {
+			this.dataRetention = policy;
+		}
 	}
 
 	@Override
 	public void addRecoloredImage(Identifier identifier, InputStream target, IntUnaryOperator operator) {
-		this.addLazyResource(ResourceType.CLIENT_RESOURCES, fix(identifier, "textures", "png"), (i, r) -> {
-			try {
+		this.addRecoloredImage(identifier, this.share(target, 1), operator);
+	}
 
-				// optimize buffer allocation, input and output image after recoloring should be roughly the same size
-				CountingInputStream is = new CountingInputStream(target);
+	@Override
+	public void addRecoloredImages(InputStream template, Map<Identifier, IntUnaryOperator> variants) {
+		SharedImage base = this.share(template, variants.size());
+		variants.forEach((identifier, operator) -> this.addRecoloredImage(identifier, base, operator));
+	}
+
+	private void addRecoloredImage(Identifier identifier, SharedImage base, IntUnaryOperator operator) {
+		Identifier path = fix(identifier, "textures", "png");
+		// a dropped recolor is generated again, it only counts as a user of the decoded image the first time
+		AtomicBoolean used = new AtomicBoolean();
+		this.putLazy(ResourceType.CLIENT_RESOURCES, path, ResourceMetrics.Stage.ENCODE, false, () -> {
+			try {
 				// repaint image
-				BufferedImage base = ImageIO.read(is);
-				BufferedImage recolored = new BufferedImage(base.getWidth(),
-						base.getHeight(),
-						BufferedImage.TYPE_INT_ARGB);
-				for (int y = 0; y < base.getHeight(); y++) {
-					for (int x = 0; x < base.getWidth(); x++) {
-						recolored.setRGB(x, y, operator.applyAsInt(base.getRGB(x, y)));
-					}
-				}
-				// write image
-				UnsafeByteArrayOutputStream baos = new UnsafeByteArrayOutputStream(is.bytes());
-				ImageIO.write(recolored, "png", baos);
+				BufferedImage recolored = ImageUtil.recolor(base.get(), operator, EXECUTOR_SERVICE);
+				// optimize buffer allocation, input and output image after recoloring should be roughly the same size
+				UnsafeByteArrayOutputStream baos = new UnsafeByteArrayOutputStream(base.encoded.length);
+				PngEncoder.encode(recolored, PNG_LEVEL, baos);
 				return baos.getBytes();
 			} catch (Throwable e) {
 				e.printStackTrace();
 				throw new RuntimeException(e);
+			} finally {
+				if (used.compareAndSet(false, true)) {
+					base.release();
+				}
 			}
 		});
 	}
 
+	/**
+	 * recolors that share a target stream share its decoded image
+	 */
+	private SharedImage share(InputStream target, int users) {
+		synchronized (this.images) {
+			SharedImage image = this.images.computeIfAbsent(target, SharedImage::new);
+			image.users += users;
+			return image;
+		}
+	}
+
 	@Override
 	public byte[] addLang(Identifier identifier, JLang lang) {
-		return this.addAsset(fix(identifier, "lang", "json"), serialize(lang.getLang()));
+		return this.addSerialized(ResourceType.CLIENT_RESOURCES, fix(identifier, "lang", "json"), lang.getLang());
 	}
 
 	@Override
 	public byte[] addLootTable(Identifier identifier, JLootTable table) {
-		return this.addData(fix(identifier, "loot_tables", "json"), serialize(table));
+		return this.addSerialized(ResourceType.SERVER_DATA, fix(identifier, "loot_tables", "json"), table);
 	}
 
 	@Override
 	public Future<byte[]> addAsyncResource(ResourceType type,
 			Identifier path,
 			CallableFunction<Identifier, byte[]> data) {
-		Future<byte[]> future = EXECUTOR_SERVICE.submit(() -> data.get(path));
-		this.getSys(type).put(path, () -> {
-			try {
-				return future.get();
-			} catch (InterruptedException | ExecutionException e) {
-				throw new RuntimeException(e);
+		return this.generate(type, path, CompletableFuture.completedFuture(null), () -> data.get(path));
+	}
+
+	@Override
+	public Future<byte[]> addAsyncResource(ResourceType type,
+			Identifier path,
+			Collection<Identifier> dependencies,
+			CallableFunction<Map<Identifier, byte[]>, byte[]> data) {
+		Map<Identifier, Supplier<byte[]>> sys = this.getSys(type);
+		List<CompletableFuture<?>> pending = new ArrayList<>();
+		for (Identifier dependency : dependencies) {
+			Supplier<byte[]> supplier = sys.get(dependency);
+			if (supplier == null) {
+				// dependencies have to exist before their dependents, so there can't be any cycles
+				throw new IllegalArgumentException(path + " depends on " + dependency + " which isn't in " + this.id);
+			} else if (supplier instanceof Pending) {
+				pending.add(((Pending) supplier).future);
 			}
+		}
+
+		CompletableFuture<?> after = CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]));
+		return this.generate(type, path, after, () -> {
+			Map<Identifier, byte[]> resolved = new HashMap<>();
+			for (Identifier dependency : dependencies) {
+				Supplier<byte[]> supplier = resolve(sys.get(dependency));
+				if (supplier == null) {
+					throw new IllegalStateException(path + " depends on " + dependency + " which was never produced");
+				}
+				resolved.put(dependency, supplier.get());
+			}
+			return data.get(resolved);
+		});
+	}
+
+	/**
+	 * runs the generator on the executor once after completes, readers of the path only wait for this generator
+	 */
+	private CompletableFuture<byte[]> generate(ResourceType type,
+			Identifier path,
+			CompletableFuture<?> after,
+			Callable<byte[]> generator) {
+		CompletableFuture<byte[]> future = new CompletableFuture<>();
+		Pending pending = new Pending(type, path, future);
+		this.put(type, path, pending);
+		after.whenComplete((v, failure) -> {
+			if (failure != null) {
+				future.completeExceptionally(failure);
+				return;
+			}
+			this.execute(() -> {
+				try {
+					long start = this.metrics.start();
+					byte[] bytes = generator.call();
+					this.metrics.record(ResourceMetrics.Stage.GENERATE, type, path, start, bytes.length);
+					// move the finished resource into the store, unless it was replaced in the meantime
+					this.getSys(type).replace(path, pending, this.getStore(type).store(bytes));
+					future.complete(bytes);
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			});
 		});
 		return future;
 	}
@@ -197,26 +450,150 @@ public class RuntimeResourcePackImpl implements RuntimeResourcePack, ResourcePac
 	public void addLazyResource(ResourceType type,
 			Identifier path,
 			BiFunction<RuntimeResourcePack, Identifier, byte[]> func) {
-		this.getSys(type).put(path, new Supplier<byte[]>() {
-			private byte[] data;
+		this.addLazyResource(type, path, func, false);
+	}
 
-			@Override
-			public byte[] get() {
-				if (this.data == null) {
-					this.data = func.apply(RuntimeResourcePackImpl.this, path);
-				}
-				return this.data;
-			}
-		});
+	@Override
+	public void addLazyResource(ResourceType type,
+			Identifier path,
+			BiFunction<RuntimeResourcePack, Identifier, byte[]> func,
+			boolean release) {
+		this.putLazy(type, path, ResourceMetrics.Stage.GENERATE, release, () -> func.apply(this, path));
+	}
+
+	private void putLazy(ResourceType type, Identifier path, ResourceMetrics.Stage stage, boolean release, Supplier<byte[]> generator) {
+		Supplier<byte[]> supplier = generator;
+		if (this.metrics.isEnabled()) {
+			supplier = () -> {
+				long start = this.metrics.start();
+				byte[] bytes = generator.get();
+				this.metrics.record(stage, type, path, start, bytes.length);
+				this.metrics.recordLazyEvaluation();
+				return bytes;
+			};
+		}
+		this.put(type, path, release ? Lazy.releasing(supplier) : Lazy.of(supplier));
 	}
 
 
 	@Override
 	public byte[] addResource(ResourceType type, Identifier path, byte[] data) {
-		this.getSys(type).put(path, () -> data);
+		this.put(type, path, this.getStore(type).store(data));
 		return data;
 	}
 
+	@Override
+	public boolean removeResource(ResourceType type, Identifier path) {
+		return this.remove(type, path, null);
+	}
+
+	@Override
+	public boolean replaceResource(ResourceType type, Identifier path, byte[] data) {
+		Map<Identifier, Supplier<byte[]>> sys = this.getSys(type);
+		Supplier<byte[]> old;
+		while ((old = sys.get(path)) != null) {
+			if (sys.replace(path, old, this.getStore(type).store(data))) {
+				this.changed(type, path);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public long getGeneration(ResourceType type, Identifier path) {
+		return this.getChanges(type).getOrDefault(path, 0L);
+	}
+
+	@Override
+	public Set<Identifier> getDirty(ResourceType type) {
+		long reload = this.reloadGeneration;
+		Set<Identifier> dirty = new HashSet<>();
+		for (Map.Entry<Identifier, Long> entry : this.getChanges(type).entrySet()) {
+			if (entry.getValue() > reload) {
+				dirty.add(entry.getKey());
+			}
+		}
+		return dirty;
+	}
+
+	/**
+	 * called when a resource reload that includes this pack starts, resources changed after this are dirty until the
+	 * next reload
+	 */
+	public void onReload() {
+		this.reloadGeneration = this.generation.get();
+		this.metrics.startReload();
+	}
+
+	/**
+	 * called once a resource reload that includes this pack has finished, applies the retention policies off-thread
+	 */
+	public void onReloadComplete() {
+		if (DEBUG_PERFORMANCE) {
+			LOGGER.info(this.id + " served " + this.metrics.getOpens() + " resources, " + this.metrics.getBytesServed() + " bytes during the reload");
+		}
+		if (this.assetRetention == RetentionPolicy.KEEP && this.dataRetention == RetentionPolicy.KEEP) {
+			return;
+		}
+		EXECUTOR_SERVICE.execute(() -> {
+			long released = this.retain(ResourceType.CLIENT_RESOURCES, this.assetRetention);
+			released += this.retain(ResourceType.SERVER_DATA, this.dataRetention);
+			if (DEBUG_PERFORMANCE) {
+				LOGGER.info("moved " + released + " bytes of resources of " + this.id + " off the heap after reload");
+			}
+		});
+	}
+
+	/**
+	 * @return the size of the resources moved off the heap, compressed ones count their full size
+	 */
+	private long retain(ResourceType type, RetentionPolicy policy) {
+		if (policy == RetentionPolicy.KEEP) {
+			return 0;
+		}
+
+		long released = 0;
+		Map<Identifier, Supplier<byte[]>> sys = this.getSys(type);
+		for (Map.Entry<Identifier, Supplier<byte[]>> entry : sys.entrySet()) {
+			Supplier<byte[]> supplier = entry.getValue();
+			StoredResource spilled;
+			if (supplier instanceof Lazy) {
+				Lazy<?> lazy = (Lazy<?>) supplier;
+				if (!lazy.isDone()) {
+					continue;
+				} else if (policy == RetentionPolicy.DROP) {
+					lazy.release();
+					continue;
+				}
+				try {
+					spilled = this.getSpillStore().store(supplier.get());
+				} catch (RuntimeException e) {
+					// a cached failure, it's rethrown to whoever opens the resource
+					continue;
+				}
+			} else if (supplier instanceof StoredResource && ((StoredResource) supplier).isOnHeap()) {
+				spilled = ((StoredResource) supplier).moveTo(this.getSpillStore());
+			} else {
+				// pending, or already off the heap
+				continue;
+			}
+
+			if (sys.replace(entry.getKey(), supplier, spilled)) {
+				released += spilled.size();
+			}
+		}
+		return released;
+	}
+
+	private synchronized ResourceStore getSpillStore() {
+		if (this.spillStore == null) {
+			// resources shared between ids are only spilled once
+			this.spillStore = this.track(new DeduplicatingResourceStore(new MappedResourceStore()));
+		}
+		return this.spillStore;
+	}
+
 	@Override
 	public byte[] addAsset(Identifier path, byte[] data) {
 		return this.addResource(ResourceType.CLIENT_RESOURCES, path, data);
@@ -229,87 +606,364 @@ public class RuntimeResourcePackImpl implements RuntimeResourcePack, ResourcePac
 
 	@Override
 	public byte[] addModel(JModel model, Identifier path) {
-		return this.addAsset(fix(path, "models", "json"), serialize(model));
+		return this.addSerialized(ResourceType.CLIENT_RESOURCES, fix(path, "models", "json"), model);
 	}
 
 	@Override
 	public byte[] addBlockState(JState state, Identifier path) {
-		return this.addAsset(fix(path, "blockstates", "json"), serialize(state));
+		return this.addSerialized(ResourceType.CLIENT_RESOURCES, fix(path, "blockstates", "json"), state);
+	}
+
+	@Override
+	public byte[] addFromTemplate(Identifier path, JTemplate template, String... values) {
+		Identifier fixed = fix(path, template.getDirectory(), "json");
+		long start = this.metrics.start();
+		byte[] data = template.apply(GSON, values);
+		this.metrics.record(ResourceMetrics.Stage.SERIALIZE, template.getType(), fixed, start, data.length);
+		return this.addResource(template.getType(), fixed, data);
+	}
+
+	private byte[] addSerialized(ResourceType type, Identifier path, Object object) {
+		long start = this.metrics.start();
+		byte[] data = serialize(object);
+		this.metrics.record(ResourceMetrics.Stage.SERIALIZE, type, path, start, data.length);
+		return this.addResource(type, path, data);
 	}
 
 	@Override
 	public byte[] addTexture(Identifier id, BufferedImage image) {
-		UnsafeByteArrayOutputStream ubaos = new UnsafeByteArrayOutputStream();
-		try {
-			ImageIO.write(image, "png", ubaos);
-		} catch (IOException e) {
-			throw new RuntimeException("impossible.", e);
-		}
-		return this.addAsset(fix(id, "textures", "png"), ubaos.getBytes());
+		Identifier path = fix(id, "textures", "png");
+		long start = this.metrics.start();
+		byte[] data = PngEncoder.encode(image, PNG_LEVEL);
+		this.metrics.record(ResourceMetrics.Stage.ENCODE, ResourceType.CLIENT_RESOURCES, path, start, data.length);
+		return this.addAsset(path, data);
 	}
 
 	@Override
 	public byte[] addAnimation(Identifier id, JAnimation animation) {
-		return this.addAsset(fix(id, "textures", "png.mcmeta"), serialize(animation));
+		return this.addSerialized(ResourceType.CLIENT_RESOURCES, fix(id, "textures", "png.mcmeta"), animation);
 	}
 
 	@Override
 	public byte[] addTag(Identifier id, JTag tag) {
-		return this.addData(fix(id, "tags", "json"), serialize(tag));
+		return this.addSerialized(ResourceType.SERVER_DATA, fix(id, "tags", "json"), tag);
 	}
 
 	@Override
 	public byte[] addRecipe(Identifier id, JRecipe recipe) {
-		return this.addData(fix(id, "recipes", "json"), serialize(recipe));
+		return this.addSerialized(ResourceType.SERVER_DATA, fix(id, "recipes", "json"), recipe);
 	}
 
 	@Override
 	public Future<?> async(Consumer<RuntimeResourcePack> action) {
-		this.lock();
-		return EXECUTOR_SERVICE.submit(() -> {
-			action.accept(this);
-			this.waiting.unlock();
-		});
+		CompletableFuture<Void> batch = new CompletableFuture<>();
+		this.waiting.add(batch);
+		try {
+			return this.submit(() -> {
+				try {
+					action.accept(this);
+				} finally {
+					this.waiting.remove(batch);
+					batch.complete(null);
+				}
+			});
+		} catch (RuntimeException e) {
+			this.waiting.remove(batch);
+			batch.complete(null);
+			throw e;
+		}
 	}
 
-	private void lock() {
-		if (!this.waiting.tryLock()) {
-			if (DEBUG_PERFORMANCE) {
-				long start = System.currentTimeMillis();
-				this.waiting.lock();
-				long end = System.currentTimeMillis();
-				LOGGER.warning("waited " + (end - start) + "ms for lock in RRP: " + this.id);
-			} else {
-				this.waiting.lock();
+	@Override
+	public Future<?> async(ResourceType type, Collection<Identifier> produces, Consumer<RuntimeResourcePack> action) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		List<Pending> pending = new ArrayList<>(produces.size());
+		for (Identifier path : produces) {
+			Pending placeholder = new Pending(type, path, future);
+			this.put(type, path, placeholder);
+			pending.add(placeholder);
+		}
+
+		this.execute(() -> {
+			try {
+				action.accept(this);
+			} catch (Throwable t) {
+				// the placeholders are kept, reading them rethrows the failure
+				future.completeExceptionally(t);
+				return;
 			}
+			for (Pending placeholder : pending) {
+				if (this.remove(type, placeholder.path, placeholder)) {
+					LOGGER.warning(placeholder.path + " was declared but never produced in " + this.id);
+				}
+			}
+			future.complete(null);
+		});
+		return future;
+	}
+
+	/**
+	 * tasks submitted from a worker of a fork join executor are forked onto that worker's own queue, so a task that
+	 * splits itself up and waits on the parts runs them itself unless other workers are idle and steal them
+	 */
+	private Future<?> submit(Runnable task) {
+		if (RRPExecutors.isWorker(EXECUTOR_SERVICE)) {
+			return ForkJoinTask.adapt(task).fork();
+		}
+		return EXECUTOR_SERVICE.submit(task);
+	}
+
+	private void execute(Runnable task) {
+		RRPExecutors.execute(EXECUTOR_SERVICE, task);
+	}
+
+	private void await() {
+		if (this.waiting.isEmpty()) {
+			return;
+		}
+		// batches started after this don't hold the reader up
+		CompletableFuture<?> pending = CompletableFuture.allOf(this.waiting.toArray(new CompletableFuture[0]));
+		long start = System.nanoTime();
+		try {
+			Blocking.get(pending);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// batches are always completed normally, their failures go to the future returned by async
+			throw new IllegalStateException(e);
 		}
+		if (DEBUG_PERFORMANCE) {
+			this.metrics.recordWait(start);
+			LOGGER.warning("waited " + (System.nanoTime() - start) / 1_000_000 + "ms for async tasks in RRP: " + this.id);
+		}
+	}
+
+	@Override
+	public synchronized void dispose() {
+		this.metrics.unregister();
+		this.assetStore.close();
+		this.dataStore.close();
+		this.baseStore.close();
+		if (this.spillStore != null) {
+			this.spillStore.close();
+		}
+	}
+
+	@Override
+	public ResourceMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	@Override
+	public synchronized boolean loadCache(String version) {
+		this.cache = new GenerationCache(this.id, this.packVersion, version);
+		this.cacheUpToDate = this.cache.read(this);
+		return this.cacheUpToDate;
 	}
 
 	@Override
 	public void dump() {
 		LOGGER.info("dumping " + this.id + "'s assets and data");
 		// data dump time
-		File folder = new File("rrp.debug/" + this.id.toString().replace(':', ';') + "/");
-		File assets = new File(folder, "assets");
-		assets.mkdirs();
-		for (Map.Entry<Identifier, Supplier<byte[]>> entry : this.assets.entrySet()) {
-			this.write(assets, entry.getKey(), entry.getValue().get());
+		Path folder = Paths.get("rrp.debug", this.id.toString().replace(':', ';'));
+		List<Path> paths = new ArrayList<>();
+		List<Supplier<byte[]>> suppliers = new ArrayList<>();
+		Set<Path> directories = new HashSet<>();
+		for (ResourceType type : ResourceType.values()) {
+			Path root = folder.resolve(type.getDirectory());
+			for (Map.Entry<Identifier, Supplier<byte[]>> entry : this.getSys(type).entrySet()) {
+				Path path = root.resolve(entry.getKey().getPath());
+				paths.add(path);
+				suppliers.add(entry.getValue());
+				directories.add(path.getParent());
+			}
+		}
+
+		try {
+			// every directory is created once up front instead of once per file
+			for (Path directory : directories) {
+				Files.createDirectories(directory);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.join(this.parallel(paths.size(), i -> {
+			try {
+				Files.write(paths.get(i), suppliers.get(i).get());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}));
+	}
+
+	@Override
+	public void dumpZip(Path zip) {
+		LOGGER.info("dumping " + this.id + "'s assets and data to " + zip);
+		this.writeZip(zip, null);
+	}
+
+	@Override
+	public void exportArchive(Path archive, String version) {
+		LOGGER.info("exporting " + this.id + " to " + archive);
+		this.writeZip(archive, PackArchive.manifest(this.id, this.packVersion, version));
+	}
+
+	@Override
+	public boolean importArchive(Path archive, String version) {
+		return PackArchive.read(archive, this, this.id, this.packVersion, version);
+	}
+
+	/**
+	 * @param manifest if not null, the hash of every resource is added to it and it's written as the archive manifest
+	 */
+	private void writeZip(Path zip, JsonObject manifest) {
+		List<String> names = new ArrayList<>();
+		List<Supplier<byte[]>> suppliers = new ArrayList<>();
+		for (ResourceType type : ResourceType.values()) {
+			for (Map.Entry<Identifier, Supplier<byte[]>> entry : this.getSys(type).entrySet()) {
+				Identifier id = entry.getKey();
+				names.add(type.getDirectory() + '/' + id.getNamespace() + '/' + id.getPath());
+				suppliers.add(entry.getValue());
+			}
+		}
+		// resources are generated in parallel while the ones before them are compressed, only a few per thread are
+		// generated ahead so the whole pack is never on the heap at once
+		int window = Runtime.getRuntime().availableProcessors() * 4;
+		List<CompletableFuture<byte[]>> resources = new ArrayList<>(names.size());
+		for (int i = 0; i < Math.min(window, names.size()); i++) {
+			resources.add(CompletableFuture.supplyAsync(suppliers.get(i), this::execute));
+		}
+
+		try {
+			Path parent = zip.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+			try (ZipOutputStream output = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zip)))) {
+				writeEntry(output, "pack.mcmeta", this.mcmeta);
+				try (InputStream icon = this.openRoot("pack.png")) {
+					if (icon != null) {
+						output.putNextEntry(new ZipEntry("pack.png"));
+						copy(icon, output);
+						output.closeEntry();
+					}
+				}
+
+				for (int i = 0; i < names.size(); i++) {
+					byte[] data = this.join(resources.get(i));
+					resources.set(i, null);
+					if (i + window < names.size()) {
+						resources.add(CompletableFuture.supplyAsync(suppliers.get(i + window), this::execute));
+					}
+					writeEntry(output, names.get(i), data);
+					if (manifest != null) {
+						PackArchive.addResource(manifest, names.get(i), data);
+					}
+				}
+				if (manifest != null) {
+					writeEntry(output, PackArchive.MANIFEST, GSON.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeEntry(ZipOutputStream output, String name, byte[] data) throws IOException {
+		output.putNextEntry(new ZipEntry(name));
+		output.write(data);
+		output.closeEntry();
+	}
+
+	private static void copy(InputStream input, OutputStream output) throws IOException {
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			output.write(buffer, 0, read);
 		}
+	}
 
-		File data = new File(folder, "data");
-		data.mkdir();
-		for (Map.Entry<Identifier, Supplier<byte[]>> entry : this.data.entrySet()) {
-			this.write(data, entry.getKey(), entry.getValue().get());
+	/**
+	 * runs the action for every index from 0 until count, split into a few chunks per thread
+	 */
+	private CompletableFuture<Void> parallel(int count, IntConsumer action) {
+		int chunks = Math.max(1, Math.min(count, Runtime.getRuntime().availableProcessors() * 4));
+		CompletableFuture<?>[] futures = new CompletableFuture[chunks];
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int start = (int) ((long) count * chunk / chunks), end = (int) ((long) count * (chunk + 1) / chunks);
+			futures[chunk] = CompletableFuture.runAsync(() -> {
+				for (int i = start; i < end; i++) {
+					action.accept(i);
+				}
+			}, this::execute);
 		}
+		return CompletableFuture.allOf(futures);
+	}
 
+	private <T> T join(Future<T> future) {
+		try {
+			return Blocking.get(future);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * @param streaming write the J* types with their streaming adapters instead of their tree serializers
+	 * @param pretty pretty print the json
+	 */
+	public static Gson createGson(boolean streaming, boolean pretty) {
+		GsonBuilder builder = new GsonBuilder().disableHtmlEscaping();
+		if (pretty) {
+			builder.setPrettyPrinting();
+		}
+
+		if (streaming) {
+			// @formatter:off
+			builder.registerTypeAdapterFactory(new StreamSerializerFactory()
+					.register(JMultipart.class, JMultipart.Adapter::new)
+					.register(JWhen.class, gson -> new JWhen.Adapter())
+					.register(JState.class, JState.Adapter::new)
+					.register(JVariant.class, JVariant.Adapter::new)
+					.register(JTextures.class, gson -> new JTextures.Adapter())
+					.register(JAnimation.class, JAnimation.Adapter::new)
+					.register(JFunction.class, JFunction.Adapter::new)
+					.register(JPool.class, JPool.Adapter::new)
+					.register(JPattern.class, gson -> new JPattern.Adapter())
+					.register(JKeys.class, JKeys.Adapter::new)
+					.register(JIngredient.class, JIngredient.Adapter::new)
+					.register(JIngredients.class, JIngredients.Adapter::new)
+					.register(JCondition.class, JCondition.Adapter::new));
+			// @formatter:on
+		} else {
+			// @formatter:off
+			builder.registerTypeAdapter(JMultipart.class, new JMultipart.Serializer())
+				   .registerTypeAdapter(JWhen.class, new JWhen.Serializer())
+				   .registerTypeAdapter(JState.class, new JState.Serializer())
+				   .registerTypeAdapter(JVariant.class, new JVariant.Serializer())
+				   .registerTypeAdapter(JTextures.class, new JTextures.Serializer())
+				   .registerTypeAdapter(JAnimation.class, new JAnimation.Serializer())
+				   .registerTypeAdapter(JFunction.class, new JFunction.Serializer())
+				   .registerTypeAdapter(JPool.class, new JPool.Serializer())
+				   .registerTypeAdapter(JPattern.class, new JPattern.Serializer())
+				   .registerTypeAdapter(JKeys.class, new JKeys.Serializer())
+				   .registerTypeAdapter(JIngredient.class, new JIngredient.Serializer())
+				   .registerTypeAdapter(JIngredients.class, new JIngredients.Serializer())
+				   .registerTypeAdapter(JCondition.class, new JCondition.Serializer());
+			// @formatter:on
+		}
+		return builder.registerTypeAdapter(Identifier.class, new Identifier.Serializer()).create();
 	}
 
 	private static byte[] serialize(Object object) {
 		UnsafeByteArrayOutputStream ubaos = new UnsafeByteArrayOutputStream();
-		OutputStreamWriter writer = new OutputStreamWriter(ubaos);
-		GSON.toJson(object, writer);
-		try {
-			writer.close();
+		try (OutputStreamWriter writer = new OutputStreamWriter(ubaos, StandardCharsets.UTF_8)) {
+			GSON.toJson(object, writer);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -317,13 +971,143 @@ public class RuntimeResourcePackImpl implements RuntimeResourcePack, ResourcePac
 	}
 
 	private static Identifier fix(Identifier identifier, String prefix, String append) {
-		return new Identifier(identifier.getNamespace(), prefix + '/' + identifier.getPath() + '.' + append);
+		String path = identifier.getPath();
+		// sized up front, concatenation grows its builder a couple of times for a typical path
+		StringBuilder builder = new StringBuilder(prefix.length() + path.length() + append.length() + 2);
+		builder.append(prefix).append('/').append(path).append('.').append(append);
+		return new Identifier(namespace(identifier.getNamespace()), builder.toString());
+	}
+
+	/**
+	 * @return the one instance of the namespace every key uses, a modpack has a few hundred namespaces shared by
+	 * hundreds of thousands of keys
+	 */
+	private static String namespace(String namespace) {
+		String interned = NAMESPACES.putIfAbsent(namespace, namespace);
+		return interned == null ? namespace : interned;
+	}
+
+	/**
+	 * @return an identifier equal to the given one that shares its namespace with the other keys
+	 */
+	private static Identifier key(Identifier identifier) {
+		String namespace = identifier.getNamespace(), interned = namespace(namespace);
+		return interned == namespace ? identifier : new Identifier(interned, identifier.getPath());
 	}
 
 	private Map<Identifier, Supplier<byte[]>> getSys(ResourceType side) {
 		return side == ResourceType.CLIENT_RESOURCES ? this.assets : this.data;
 	}
 
+	private ResourceStore getStore(ResourceType side) {
+		return side == ResourceType.CLIENT_RESOURCES ? this.assetStore : this.dataStore;
+	}
+
+	private Map<Identifier, CompletableFuture<Void>> getArrivals(ResourceType side) {
+		return side == ResourceType.CLIENT_RESOURCES ? this.assetArrivals : this.dataArrivals;
+	}
+
+	private ResourceIndex getIndex(ResourceType side) {
+		return side == ResourceType.CLIENT_RESOURCES ? this.assetIndex : this.dataIndex;
+	}
+
+	private Map<Identifier, Long> getChanges(ResourceType side) {
+		return side == ResourceType.CLIENT_RESOURCES ? this.assetChanges : this.dataChanges;
+	}
+
+	void put(ResourceType type, Identifier path, Supplier<byte[]> supplier) {
+		path = key(path);
+		if (this.getSys(type).put(path, supplier) == null) {
+			this.getIndex(type).add(path);
+			Map<Identifier, CompletableFuture<Void>> arrivals = this.getArrivals(type);
+			if (!arrivals.isEmpty()) {
+				CompletableFuture<Void> arrival = arrivals.remove(path);
+				if (arrival != null) {
+					arrival.complete(null);
+				}
+			}
+		}
+		this.changed(type, path);
+	}
+
+	/**
+	 * @return the supplier of the resource, while pregen is streamed into the pack this waits until either the
+	 * resource is added or pregen finishes
+	 */
+	private Supplier<byte[]> lookup(ResourceType type, Identifier id) {
+		Map<Identifier, Supplier<byte[]>> sys = this.getSys(type);
+		Supplier<byte[]> supplier = sys.get(id);
+		if (supplier != null || !STREAMING_PREGEN || PregenScheduler.isDone()) {
+			return supplier;
+		}
+
+		Map<Identifier, CompletableFuture<Void>> arrivals = this.getArrivals(type);
+		CompletableFuture<Void> arrival = arrivals.computeIfAbsent(id, i -> new CompletableFuture<>());
+		// put checks for arrivals after adding, so this second look can't miss a resource added in between
+		supplier = sys.get(id);
+		if (supplier == null) {
+			long start = System.nanoTime();
+			try {
+				Blocking.get(CompletableFuture.anyOf(arrival, PregenScheduler.completion()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+			this.metrics.recordWait(start);
+			PregenScheduler.recordWait(start);
+			arrivals.remove(id, arrival);
+			supplier = sys.get(id);
+		}
+		return supplier;
+	}
+
+	/**
+	 * listings can't be complete until pregen is, so they wait for all of it
+	 */
+	private void awaitPregen() {
+		if (STREAMING_PREGEN && !PregenScheduler.isDone()) {
+			long start = System.nanoTime();
+			PregenScheduler.await();
+			this.metrics.recordWait(start);
+		}
+	}
+
+	/**
+	 * @param supplier the supplier to remove, or null to remove whatever is there
+	 */
+	private boolean remove(ResourceType type, Identifier path, Supplier<byte[]> supplier) {
+		Map<Identifier, Supplier<byte[]>> sys = this.getSys(type);
+		if (supplier == null ? sys.remove(path) != null : sys.remove(path, supplier)) {
+			ResourceIndex index = this.getIndex(type);
+			index.remove(path);
+			// a put between the two removes would otherwise lose its index entry
+			if (sys.containsKey(path)) {
+				index.add(path);
+			}
+			this.changed(type, path);
+			return true;
+		}
+		return false;
+	}
+
+	private void changed(ResourceType type, Identifier path) {
+		// before the first reload every resource is new anyway
+		if (this.reloadGeneration >= 0) {
+			this.getChanges(type).put(path, this.generation.incrementAndGet());
+		}
+	}
+
+	/**
+	 * @return the supplier once it's no longer pending, or null if it was declared but never produced
+	 */
+	private static Supplier<byte[]> resolve(Supplier<byte[]> supplier) {
+		while (supplier instanceof Pending) {
+			supplier = ((Pending) supplier).resolve();
+		}
+		return supplier;
+	}
+
 	/**
 	 * pack.png and that's about it I think/hope
 	 *
@@ -332,24 +1116,35 @@ public class RuntimeResourcePackImpl implements RuntimeResourcePack, ResourcePac
 	 */
 	@Override
 	public InputStream openRoot(String fileName) {
-		if (!fileName.contains("/") && !fileName.contains("\\")) {
+		if ("pack.mcmeta".equals(fileName)) {
+			return new ByteBufferInputStream(ByteBuffer.wrap(this.mcmeta).asReadOnlyBuffer());
+		} else if (!fileName.contains("/") && !fileName.contains("\\")) {
 			return ARRP.class.getResourceAsStream("/resource/" + fileName);
 		} else {
 			throw new IllegalArgumentException("File name can't be a path");
 		}
 	}
 
+	/**
+	 * @return a stream that shares the stored bytes, for most stores a {@link ByteBufferInputStream} whose buffer can
+	 * be read directly
+	 */
 	@Override
 	public InputStream open(ResourceType type, Identifier id) {
-		this.lock();
-		Supplier<byte[]> supplier = this.getSys(type).get(id);
+		this.await();
+		Supplier<byte[]> supplier = resolve(this.lookup(type, id));
 		if (supplier == null) {
 			LOGGER.warning("No resource found for " + id);
-			this.waiting.unlock();
 			return null;
 		}
-		this.waiting.unlock();
-		return new ByteArrayInputStream(supplier.get());
+		if (supplier instanceof StoredResource) {
+			StoredResource resource = (StoredResource) supplier;
+			this.metrics.recordServed(resource.size());
+			return resource.open();
+		}
+		byte[] data = supplier.get();
+		this.metrics.recordServed(data.length);
+		return new ByteBufferInputStream(ByteBuffer.wrap(data).asReadOnlyBuffer());
 	}
 
 
@@ -359,49 +1154,38 @@ public class RuntimeResourcePackImpl implements RuntimeResourcePack, ResourcePac
 			String prefix,
 			int maxDepth,
 			Predicate<String> pathFilter) {
-		this.lock();
-		Set<Identifier> identifiers = new HashSet<>();
-		for (Identifier identifier : this.getSys(type).keySet()) {
-			if (identifier.getNamespace().equals(namespace) && identifier.getPath().startsWith(prefix) && pathFilter
-					                                                                                              .test(identifier
-							                                                                                                    .getPath())) {
-				identifiers.add(identifier);
-			}
-		}
-		this.waiting.unlock();
+		this.await();
+		this.awaitPregen();
+		List<Identifier> identifiers = new ArrayList<>();
+		this.getIndex(type).find(namespace, prefix, maxDepth, pathFilter, identifiers);
 		return identifiers;
 	}
 
 	@Override
 	public boolean contains(ResourceType type, Identifier id) {
-		this.lock();
-		boolean contains = this.getSys(type).containsKey(id);
-		this.waiting.unlock();
-		return contains;
+		this.await();
+		return this.lookup(type, id) != null;
 	}
 
 	@Override
 	public Set<String> getNamespaces(ResourceType type) {
-		this.lock();
-		Set<String> namespaces = new HashSet<>();
-		for (Identifier identifier : this.getSys(type).keySet()) {
-			namespaces.add(identifier.getNamespace());
-		}
-		this.waiting.unlock();
-		return namespaces;
+		this.await();
+		this.awaitPregen();
+		return this.getIndex(type).getNamespaces();
 	}
 
-	// if it works, don't touch it
+	/**
+	 * @return the section of the pack's metadata, or null if it doesn't have one like any other pack
+	 */
 	@Override
+	@SuppressWarnings ("unchecked")
 	public <T> T parseMetadata(ResourceMetadataReader<T> metaReader) {
-		if (metaReader.getKey().equals("pack")) {
-			JsonObject object = new JsonObject();
-			object.addProperty("pack_format", this.packVersion);
-			object.addProperty("description", "runtime resource pack");
-			return metaReader.fromJson(object);
+		String key = metaReader.getKey();
+		if (!this.metadata.has(key)) {
+			return null;
 		}
-		LOGGER.info("'" + metaReader.getKey() + "' is an unsupported metadata key!");
-		return metaReader.fromJson(new JsonObject());
+		// every reader of a key parses to the same type, minecraft has one reader per key
+		return (T) this.parsedMetadata.computeIfAbsent(key, k -> metaReader.fromJson(this.metadata.getAsJsonObject(k)));
 	}
 
 	@Override
@@ -413,25 +1197,125 @@ public class RuntimeResourcePackImpl implements RuntimeResourcePack, ResourcePac
 	public void close() {
 		LOGGER.warning("closing rrp " + this.id);
 
-		// lock
-		this.lock();
+		this.await();
 		if (DUMP) {
-			this.dump();
+			if (DUMP_ZIP) {
+				this.dumpZip(Paths.get("rrp.debug", this.id.toString().replace(':', ';') + ".zip"));
+			} else {
+				this.dump();
+			}
+		}
+		if (DEBUG_PERFORMANCE) {
+			LOGGER.info("asset store of " + this.id + ": " + this.assetStore);
+			LOGGER.info("data store of " + this.id + ": " + this.dataStore);
+			LOGGER.info("metrics of " + this.id + ": " + this.metrics);
+			try {
+				this.metrics.writeReport(Paths.get("rrp.debug"), this.id.toString().replace(':', ';'));
+			} catch (IOException e) {
+				LOGGER.warning("Unable to write the metrics of " + this.id + ": " + e);
+			}
 		}
 
-		// unlock
-		this.waiting.unlock();
+		synchronized (this) {
+			if (this.cache != null && !this.cacheUpToDate) {
+				this.cache.write(this.assets, this.data);
+				this.cacheUpToDate = true;
+			}
+		}
 	}
 
-	private void write(File dir, Identifier identifier, byte[] data) {
-		try {
-			File file = new File(dir, identifier.getPath());
-			file.getParentFile().mkdirs();
-			FileOutputStream output = new FileOutputStream(file);
-			output.write(data);
-			output.close();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	/**
+	 * an image stream shared by recolors, the decoded image is dropped once every recolor that uses it has been
+	 * generated. The encoded image is kept so recolors that were dropped by the retention policy can decode it again
+	 */
+	private final class SharedImage {
+		private final InputStream stream;
+		private byte[] encoded;
+		private BufferedImage image;
+		private int users;
+
+		private SharedImage(InputStream stream) {
+			this.stream = stream;
+		}
+
+		synchronized BufferedImage get() throws IOException {
+			if (this.image != null) {
+				return this.image;
+			}
+			if (this.encoded == null) {
+				UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream();
+				copy(this.stream, out);
+				this.encoded = out.getBytes();
+			}
+			BufferedImage image = ImageIO.read(new ByteArrayInputStream(this.encoded));
+			if (image == null) {
+				throw new IOException("unsupported image format");
+			}
+			image = ImageUtil.toArgb(image);
+			synchronized (RuntimeResourcePackImpl.this.images) {
+				// regenerating a dropped recolor decodes it just for that recolor
+				if (this.users > 0) {
+					this.image = image;
+				}
+			}
+			return image;
+		}
+
+		void release() {
+			synchronized (RuntimeResourcePackImpl.this.images) {
+				if (--this.users != 0) {
+					return;
+				}
+				RuntimeResourcePackImpl.this.images.remove(this.stream);
+			}
+			// not nested in the lock of images, get takes them the other way around
+			synchronized (this) {
+				this.image = null;
+			}
+		}
+	}
+
+	/**
+	 * a placeholder for a resource that's still being generated, reading it waits for only that generator
+	 */
+	private final class Pending implements Supplier<byte[]> {
+		private final ResourceType type;
+		private final Identifier path;
+		private final CompletableFuture<?> future;
+
+		private Pending(ResourceType type, Identifier path, CompletableFuture<?> future) {
+			this.type = type;
+			this.path = path;
+			this.future = future;
+		}
+
+		/**
+		 * @return whatever replaced this placeholder, or null if nothing did
+		 */
+		Supplier<byte[]> resolve() {
+			boolean waited = !this.future.isDone();
+			long start = waited ? RuntimeResourcePackImpl.this.metrics.start() : 0;
+			try {
+				Blocking.get(this.future);
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException("unable to generate " + this.path, e);
+			} finally {
+				// failed waits count too
+				if (waited) {
+					RuntimeResourcePackImpl.this.metrics.recordWait(start);
+				}
+			}
+			Supplier<byte[]> supplier = RuntimeResourcePackImpl.this.getSys(this.type).get(this.path);
+			return supplier == this ? null : supplier;
+		}
+
+		@Override
+		public byte[] get() {
+			Supplier<byte[]> supplier = RuntimeResourcePackImpl.resolve(this);
+			if (supplier == null) {
+				throw new IllegalStateException(this.path + " was never produced");
+			}
+			return supplier.get();
 		}
 	}
 }
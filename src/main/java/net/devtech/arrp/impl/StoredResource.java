@@ -0,0 +1,50 @@
+package net.devtech.arrp.impl;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+import net.devtech.arrp.util.ByteBufferInputStream;
+
+/**
+ * a finished resource held by a {@link ResourceStore}
+ */
+public interface StoredResource extends Supplier<byte[]> {
+	/**
+	 * @return a read-only view of the resource, stores that keep the bytes in a buffer or array share them here
+	 * instead of copying
+	 */
+	default ByteBuffer buffer() {
+		return ByteBuffer.wrap(this.get()).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return a new stream over the resource, by default a {@link ByteBufferInputStream} over {@link #buffer()}
+	 */
+	default InputStream open() {
+		return new ByteBufferInputStream(this.buffer());
+	}
+
+	/**
+	 * @return the length of the resource in bytes, stores that would have to copy or decompress it in {@link #get()}
+	 * should know it up front
+	 */
+	default int size() {
+		return this.buffer().remaining();
+	}
+
+	/**
+	 * @return this resource kept in another store, resources that hold their bytes in another form, eg. compressed,
+	 * move that form as it is
+	 */
+	default StoredResource moveTo(ResourceStore store) {
+		return store.store(this.get());
+	}
+
+	/**
+	 * @return false if the resource lives outside of the java heap, eg. in a memory mapped file
+	 */
+	default boolean isOnHeap() {
+		return true;
+	}
+}
@@ -0,0 +1,235 @@
+package net.devtech.arrp.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.Gson;
+import net.devtech.arrp.util.UnsafeByteArrayOutputStream;
+
+import net.minecraft.resource.ResourceType;
+
+/**
+ * a J* object serialized once, with some of its strings left as slots. Instances are made by splicing the values into
+ * the pre-encoded json, so making thousands of similar resources doesn't build and serialize thousands of objects.
+ * <pre>{@code
+ * JTemplate template = JModel.model("block/cube_all")
+ *                            .textures(JModel.textures().var("all", JTemplate.slot("texture")))
+ *                            .template("texture");
+ * pack.addFromTemplate(new Identifier("mymod", "block/ruby_block"), template, "mymod:block/ruby_block");
+ * }</pre>
+ * slots are valid identifier paths, so they also work in identifiers. A slot that is a whole identifier, eg.
+ * {@code JState.model(JTemplate.slot("model"))} or {@code new Identifier(JTemplate.slot("item"))}, takes a full
+ * identifier as its value, which gets the minecraft namespace if it doesn't have one.
+ * <p>
+ * the object is serialized the first time the template is applied, with the gson of whoever applies it, so it
+ * shouldn't be changed after the template is made
+ *
+ * @see net.devtech.arrp.api.RuntimeResourcePack#addFromTemplate
+ */
+public final class JTemplate {
+	private static final String START = "__rrp_", END = "__";
+	// what an identifier made from just a slot serializes to before the slot
+	private static final String IDENTIFIER = "\"minecraft:";
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private final Object object;
+	private final ResourceType type;
+	private final String directory;
+	private final String[] slots;
+	private volatile Compiled compiled;
+
+	private JTemplate(Object object, ResourceType type, String directory, String[] slots) {
+		this.object = object;
+		this.type = type;
+		this.directory = directory;
+		this.slots = slots;
+	}
+
+	/**
+	 * @param name the name of the slot, as passed to {@link #of(Object, ResourceType, String, String...)}, lowercase
+	 * letters and digits separated by single underscores
+	 * @return a placeholder to use in place of a string or identifier of the object, it can be part of a longer string
+	 */
+	public static String slot(String name) {
+		if (!name.matches("[a-z0-9]+(_[a-z0-9]+)*")) {
+			throw new IllegalArgumentException("invalid slot name " + name);
+		}
+		return START + name + END;
+	}
+
+	/**
+	 * @param type the type of resource the template makes
+	 * @param directory the directory instances go in, eg. "models"
+	 * @param slots the names of the slots in the object, values are passed in this order
+	 */
+	public static JTemplate of(Object object, ResourceType type, String directory, String... slots) {
+		for (String slot : slots) {
+			slot(slot);
+		}
+		return new JTemplate(object, type, directory, slots.clone());
+	}
+
+	public ResourceType getType() {
+		return this.type;
+	}
+
+	public String getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * @param gson what the object is serialized with, resources made from the template match the ones it makes
+	 * @param values the value of every slot, in the order they were declared
+	 * @return the json with every slot replaced, exactly what serializing the object with those strings would give
+	 */
+	public byte[] apply(Gson gson, String... values) {
+		if (values.length != this.slots.length) {
+			throw new IllegalArgumentException("expected values for " + Arrays.toString(this.slots) + " but got " + values.length);
+		}
+
+		Compiled compiled = this.compiled;
+		if (compiled == null || compiled.gson != gson) {
+			// racing threads compile the same thing, whichever is kept doesn't matter
+			this.compiled = compiled = this.compile(gson);
+		}
+
+		int length = compiled.length;
+		for (int index : compiled.order) {
+			length += values[index].length() + 8; // mostly ascii, a little room for escapes
+		}
+		UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream(length);
+		for (int i = 0; i < compiled.order.length; i++) {
+			out.write(compiled.segments[i], 0, compiled.segments[i].length);
+			String value = values[compiled.order[i]];
+			if (compiled.identifiers[i] && value.indexOf(':') == -1) {
+				escape("minecraft:", out);
+			}
+			escape(value, out);
+		}
+		byte[] last = compiled.segments[compiled.order.length];
+		out.write(last, 0, last.length);
+		return out.getBytes();
+	}
+
+	private Compiled compile(Gson gson) {
+		String json = gson.toJson(this.object);
+		List<byte[]> segments = new ArrayList<>();
+		List<Integer> order = new ArrayList<>();
+		List<Boolean> identifiers = new ArrayList<>();
+		int start = 0, slot;
+		while ((slot = json.indexOf(START, start)) != -1) {
+			int end = json.indexOf(END, slot + START.length());
+			if (end == -1) {
+				throw new IllegalArgumentException("unterminated slot in " + json);
+			}
+			String name = json.substring(slot + START.length(), end);
+			int index = Arrays.asList(this.slots).indexOf(name);
+			if (index == -1) {
+				throw new IllegalArgumentException("slot " + name + " wasn't declared, expected one of " + Arrays.toString(this.slots));
+			}
+			// an identifier made from just the slot, the value decides the namespace
+			boolean identifier = json.startsWith(IDENTIFIER, slot - IDENTIFIER.length()) && json.charAt(end + END.length()) == '"';
+			int segmentEnd = identifier ? slot - IDENTIFIER.length() + 1 : slot;
+			segments.add(json.substring(start, segmentEnd).getBytes(StandardCharsets.UTF_8));
+			order.add(index);
+			identifiers.add(identifier);
+			start = end + END.length();
+		}
+		segments.add(json.substring(start).getBytes(StandardCharsets.UTF_8));
+
+		int[] orderArray = new int[order.size()];
+		boolean[] identifierArray = new boolean[order.size()];
+		for (int i = 0; i < orderArray.length; i++) {
+			orderArray[i] = order.get(i);
+			identifierArray[i] = identifiers.get(i);
+		}
+		return new Compiled(gson, segments.toArray(new byte[0][]), orderArray, identifierArray);
+	}
+
+	/**
+	 * writes the string as the inside of a json string, escaped the same way gson does with html escaping disabled
+	 */
+	private static void escape(String value, UnsafeByteArrayOutputStream out) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				switch (c) {
+				case '"':
+				case '\\':
+					out.write('\\');
+					out.write(c);
+					break;
+				case '\t':
+					out.write('\\');
+					out.write('t');
+					break;
+				case '\b':
+					out.write('\\');
+					out.write('b');
+					break;
+				case '\n':
+					out.write('\\');
+					out.write('n');
+					break;
+				case '\r':
+					out.write('\\');
+					out.write('r');
+					break;
+				case '\f':
+					out.write('\\');
+					out.write('f');
+					break;
+				default:
+					if (c < 0x20) {
+						unicode(c, out);
+					} else {
+						out.write(c);
+					}
+				}
+			} else if (c == '\u2028' || c == '\u2029') {
+				unicode(c, out);
+			} else {
+				int end = i + 1;
+				while (end < value.length() && value.charAt(end) >= 0x80 && value.charAt(end) != '\u2028' && value.charAt(end) != '\u2029') {
+					end++;
+				}
+				byte[] bytes = value.substring(i, end).getBytes(StandardCharsets.UTF_8);
+				out.write(bytes, 0, bytes.length);
+				i = end - 1;
+			}
+		}
+	}
+
+	private static void unicode(char c, UnsafeByteArrayOutputStream out) {
+		out.write('\\');
+		out.write('u');
+		out.write(HEX[c >> 12 & 0xF]);
+		out.write(HEX[c >> 8 & 0xF]);
+		out.write(HEX[c >> 4 & 0xF]);
+		out.write(HEX[c & 0xF]);
+	}
+
+	private static final class Compiled {
+		private final Gson gson;
+		// segments[i] is followed by the value of slot order[i], the last segment is followed by nothing
+		private final byte[][] segments;
+		private final int[] order;
+		// whether the value of order[i] is a whole identifier
+		private final boolean[] identifiers;
+		private final int length;
+
+		private Compiled(Gson gson, byte[][] segments, int[] order, boolean[] identifiers) {
+			this.gson = gson;
+			this.segments = segments;
+			this.order = order;
+			this.identifiers = identifiers;
+			int length = 0;
+			for (byte[] segment : segments) {
+				length += segment.length;
+			}
+			this.length = length;
+		}
+	}
+}
@@ -1,14 +1,19 @@
 package net.devtech.arrp.json.animation;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 /**
  * @see #animation()
@@ -113,4 +118,50 @@ public class JAnimation implements Cloneable {
 			return object;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JAnimation> {
+		private final TypeAdapter<JFrame> frame;
+
+		public Adapter(Gson gson) {
+			this.frame = gson.getAdapter(JFrame.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JAnimation src) throws IOException {
+			out.beginObject();
+			out.name("animation");
+			out.beginObject();
+			if (src.interpolate != null) {
+				out.name("interpolate").value(src.interpolate);
+			}
+			if (src.width != null) {
+				out.name("width").value(src.width);
+			}
+			if (src.height != null) {
+				out.name("height").value(src.height);
+			}
+			if (src.frametime != null) {
+				out.name("frametime").value(src.frametime);
+			}
+			boolean frames = src.frames != null && !src.frames.isEmpty();
+			boolean defaultFrames = src.defaultFrames != null && !src.defaultFrames.isEmpty();
+			if (frames || defaultFrames) {
+				out.name("frames");
+				out.beginArray();
+				if (frames) {
+					for (JFrame frame : src.frames) {
+						this.frame.write(out, frame);
+					}
+				}
+				if (defaultFrames) {
+					for (Integer frame : src.defaultFrames) {
+						out.value(frame);
+					}
+				}
+				out.endArray();
+			}
+			out.endObject();
+			out.endObject();
+		}
+	}
 }
@@ -1,13 +1,18 @@
 package net.devtech.arrp.json.blockstate;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 public class JMultipart implements Cloneable {
 	// one or list
@@ -51,4 +56,28 @@ public class JMultipart implements Cloneable {
 			return obj;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JMultipart> {
+		private final TypeAdapter<JBlockModel> model;
+		private final TypeAdapter<JWhen> when;
+
+		public Adapter(Gson gson) {
+			this.model = gson.getAdapter(JBlockModel.class);
+			this.when = gson.getAdapter(JWhen.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JMultipart src) throws IOException {
+			out.beginObject();
+			out.name("apply");
+			if (src.apply.size() == 1) {
+				this.model.write(out, src.apply.get(0));
+			} else {
+				writeArray(out, this.model, src.apply);
+			}
+			out.name("when");
+			this.when.write(out, src.when);
+			out.endObject();
+		}
+	}
 }
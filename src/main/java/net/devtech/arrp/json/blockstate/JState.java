@@ -1,13 +1,21 @@
 package net.devtech.arrp.json.blockstate;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.json.JTemplate;
+import net.devtech.arrp.util.StreamSerializer;
+
+import net.minecraft.resource.ResourceType;
 
 public final class JState {
 	private final List<JVariant> variants = new ArrayList<>();
@@ -83,6 +91,17 @@ public final class JState {
 		return new JWhen();
 	}
 
+	/**
+	 * serializes this blockstate once as a template, the strings and identifiers of the blockstate can be {@link
+	 * JTemplate#slot(String)}s
+	 *
+	 * @param slots the names of the slots, instances pass their values in this order
+	 * @see net.devtech.arrp.api.RuntimeResourcePack#addFromTemplate(net.minecraft.util.Identifier, JTemplate, String...)
+	 */
+	public JTemplate template(String... slots) {
+		return JTemplate.of(this, ResourceType.CLIENT_RESOURCES, "blockstates", slots);
+	}
+
 	@Override
 	public JState clone() {
 		try {
@@ -109,4 +128,32 @@ public final class JState {
 			return json;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JState> {
+		private final TypeAdapter<JVariant> variant;
+		private final TypeAdapter<JMultipart> multipart;
+
+		public Adapter(Gson gson) {
+			this.variant = gson.getAdapter(JVariant.class);
+			this.multipart = gson.getAdapter(JMultipart.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JState src) throws IOException {
+			out.beginObject();
+			if (!src.variants.isEmpty()) {
+				out.name("variants");
+				if (src.variants.size() == 1) {
+					this.variant.write(out, src.variants.get(0));
+				} else {
+					writeArray(out, this.variant, src.variants);
+				}
+			}
+			if (!src.multiparts.isEmpty()) {
+				out.name("multipart");
+				writeArray(out, this.multipart, src.multiparts);
+			}
+			out.endObject();
+		}
+	}
 }
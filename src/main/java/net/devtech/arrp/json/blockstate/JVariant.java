@@ -1,13 +1,18 @@
 package net.devtech.arrp.json.blockstate;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 import net.minecraft.util.StringIdentifiable;
 import net.minecraft.util.math.Direction;
@@ -76,4 +81,22 @@ public final class JVariant implements Cloneable {
 			return object;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JVariant> {
+		private final TypeAdapter<JBlockModel> model;
+
+		public Adapter(Gson gson) {
+			this.model = gson.getAdapter(JBlockModel.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JVariant src) throws IOException {
+			out.beginObject();
+			for (Map.Entry<String, JBlockModel> entry : src.models.entrySet()) {
+				out.name(entry.getKey());
+				this.model.write(out, entry.getValue());
+			}
+			out.endObject();
+		}
+	}
 }
@@ -1,5 +1,6 @@
 package net.devtech.arrp.json.blockstate;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -10,6 +11,8 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 import net.minecraft.util.Pair;
 
@@ -54,4 +57,25 @@ public class JWhen implements Cloneable {
 			}
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JWhen> {
+		private static void writeCondition(JsonWriter out, Pair<String, String[]> val) throws IOException {
+			out.beginObject();
+			out.name(val.getLeft()).value(String.join("|", Arrays.asList(val.getRight())));
+			out.endObject();
+		}
+
+		@Override
+		public void write(JsonWriter out, JWhen src) throws IOException {
+			if (src.OR.size() == 1) {
+				writeCondition(out, src.OR.get(0));
+			} else {
+				out.beginArray();
+				for (Pair<String, String[]> val : src.OR) {
+					writeCondition(out, val);
+				}
+				out.endArray();
+			}
+		}
+	}
 }
@@ -1,9 +1,13 @@
 package net.devtech.arrp.json.loot;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 import net.minecraft.loot.UniformLootTableRange;
 import net.minecraft.loot.context.LootContext;
 import net.minecraft.predicate.StatePredicate;
@@ -13,6 +17,7 @@ import net.minecraft.predicate.item.ItemPredicate;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Map;
 
@@ -204,4 +209,46 @@ public class JCondition implements Cloneable {
             return finalCondition;
         }
     }
+
+    public static class Adapter extends StreamSerializer<JCondition> {
+        private final TypeAdapter<Identifier> identifier;
+        private final TypeAdapter<JsonElement> element;
+
+        public Adapter(Gson gson) {
+            this.identifier = gson.getAdapter(Identifier.class);
+            this.element = gson.getAdapter(JsonElement.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, JCondition src) throws IOException {
+            out.beginObject();
+            // parameters may shadow "condition" and "predicate", keep the order and values the tree serializer had
+            JsonObject parameters = src.parameters;
+            out.name("condition");
+            if (parameters != null && parameters.has("condition")) {
+                this.element.write(out, parameters.get("condition"));
+            } else {
+                this.identifier.write(out, src.condition);
+            }
+            boolean predicate = false;
+            if (parameters != null) {
+                for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
+                    String key = entry.getKey();
+                    if (key.equals("predicate")) {
+                        out.name(key);
+                        this.element.write(out, src.predicate);
+                        predicate = true;
+                    } else if (!key.equals("condition")) {
+                        out.name(key);
+                        this.element.write(out, entry.getValue());
+                    }
+                }
+            }
+            if (!predicate) {
+                out.name("predicate");
+                this.element.write(out, src.predicate);
+            }
+            out.endObject();
+        }
+    }
 }
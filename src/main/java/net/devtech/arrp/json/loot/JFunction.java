@@ -1,6 +1,8 @@
 package net.devtech.arrp.json.loot;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 import net.minecraft.block.Block;
 import net.minecraft.enchantment.Enchantment;
 import net.minecraft.entity.EquipmentSlot;
@@ -24,6 +26,7 @@ import net.minecraft.util.Identifier;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.gen.feature.StructureFeature;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.*;
 
@@ -399,4 +402,26 @@ public class JFunction implements Cloneable {
             return jsonObject;
         }
     }
+
+    public static class Adapter extends StreamSerializer<JFunction> {
+        private final TypeAdapter<Identifier> identifier;
+        private final TypeAdapter<JCondition> condition;
+
+        public Adapter(Gson gson) {
+            this.identifier = gson.getAdapter(Identifier.class);
+            this.condition = gson.getAdapter(JCondition.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, JFunction src) throws IOException {
+            out.beginObject();
+            out.name("function");
+            this.identifier.write(out, src.function);
+            if (src.conditions != null) {
+                out.name("conditions");
+                writeArray(out, this.condition, src.conditions);
+            }
+            out.endObject();
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package net.devtech.arrp.json.loot;
 
+import net.devtech.arrp.json.JTemplate;
+
+import net.minecraft.resource.ResourceType;
 import net.minecraft.util.Identifier;
 
 import java.util.ArrayList;
@@ -107,6 +110,17 @@ public class JLootTable implements Cloneable {
 		return this;
 	}
 
+	/**
+	 * serializes this loot table once as a template, the strings and identifiers of the loot table can be {@link
+	 * JTemplate#slot(String)}s
+	 *
+	 * @param slots the names of the slots, instances pass their values in this order
+	 * @see net.devtech.arrp.api.RuntimeResourcePack#addFromTemplate(net.minecraft.util.Identifier, JTemplate, String...)
+	 */
+	public JTemplate template(String... slots) {
+		return JTemplate.of(this, ResourceType.SERVER_DATA, "loot_tables", slots);
+	}
+
 	@Override
 	public JLootTable clone() {
 		try {
@@ -1,10 +1,15 @@
 package net.devtech.arrp.json.loot;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
@@ -104,4 +109,49 @@ public class JPool implements Cloneable {
 			return obj;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JPool> {
+		private final TypeAdapter<JRoll> roll;
+		private final TypeAdapter<JEntry> entry;
+		private final TypeAdapter<JFunction> function;
+		private final TypeAdapter<JCondition> condition;
+
+		public Adapter(Gson gson) {
+			this.roll = gson.getAdapter(JRoll.class);
+			this.entry = gson.getAdapter(JEntry.class);
+			this.function = gson.getAdapter(JFunction.class);
+			this.condition = gson.getAdapter(JCondition.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JPool src) throws IOException {
+			out.beginObject();
+			// the tree serializer let roll override rolls, and bonus_rolls override bonus_roll
+			if (src.roll != null) {
+				out.name("rolls");
+				this.roll.write(out, src.roll);
+			} else if (src.rolls != null) {
+				out.name("rolls").value(src.rolls);
+			}
+			if (src.bonus_rolls != null) {
+				out.name("bonus_rolls").value(src.bonus_rolls);
+			} else if (src.bonus_roll != null) {
+				out.name("bonus_rolls");
+				this.roll.write(out, src.bonus_roll);
+			}
+			if (src.entries != null) {
+				out.name("entries");
+				writeArray(out, this.entry, src.entries);
+			}
+			if (src.functions != null) {
+				out.name("functions");
+				writeArray(out, this.function, src.functions);
+			}
+			if (src.conditions != null) {
+				out.name("conditions");
+				writeArray(out, this.condition, src.conditions);
+			}
+			out.endObject();
+		}
+	}
 }
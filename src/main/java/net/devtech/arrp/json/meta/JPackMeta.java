@@ -0,0 +1,80 @@
+package net.devtech.arrp.json.meta;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.JsonObject;
+
+/**
+ * the pack.mcmeta of a runtime resource pack, passed to {@link net.devtech.arrp.api.RuntimeResourcePack#create(String,
+ * int, JPackMeta)}. The pack format is always the pack's version.
+ * <pre>{@code
+ * JPackMeta.meta("generated blocks").language("en_pt", "Pirate Speak", "Seven Seas", false)
+ * }</pre>
+ *
+ * @see #meta(String)
+ */
+public class JPackMeta implements Cloneable {
+	private String description;
+	private final Map<String, JsonObject> languages = new LinkedHashMap<>();
+	private final Map<String, JsonObject> sections = new LinkedHashMap<>();
+
+	public static JPackMeta meta(String description) {
+		return new JPackMeta().description(description);
+	}
+
+	@Override
+	public JPackMeta clone() {
+		JPackMeta meta = new JPackMeta().description(this.description);
+		meta.languages.putAll(this.languages);
+		meta.sections.putAll(this.sections);
+		return meta;
+	}
+
+	public JPackMeta description(String description) {
+		this.description = description;
+		return this;
+	}
+
+	/**
+	 * adds a language the pack provides translations for
+	 */
+	public JPackMeta language(String code, String name, String region, boolean bidirectional) {
+		JsonObject language = new JsonObject();
+		language.addProperty("name", name);
+		language.addProperty("region", region);
+		language.addProperty("bidirectional", bidirectional);
+		this.languages.put(code, language);
+		return this;
+	}
+
+	/**
+	 * adds a top level section other than pack and language, for metadata readers of other mods. The section isn't
+	 * copied, it shouldn't be changed afterwards
+	 */
+	public JPackMeta section(String key, JsonObject section) {
+		if ("pack".equals(key) || "language".equals(key)) {
+			throw new IllegalArgumentException(key + " is generated from the rest of the metadata");
+		}
+		this.sections.put(key, section);
+		return this;
+	}
+
+	/**
+	 * @return the whole pack.mcmeta
+	 */
+	public JsonObject toJson(int packFormat) {
+		JsonObject root = new JsonObject();
+		JsonObject pack = new JsonObject();
+		pack.addProperty("pack_format", packFormat);
+		pack.addProperty("description", this.description);
+		root.add("pack", pack);
+		if (!this.languages.isEmpty()) {
+			JsonObject languages = new JsonObject();
+			this.languages.forEach(languages::add);
+			root.add("language", languages);
+		}
+		this.sections.forEach(root::add);
+		return root;
+	}
+}
@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import net.devtech.arrp.json.JTemplate;
+
+import net.minecraft.resource.ResourceType;
 import net.minecraft.util.math.Direction;
 
 /**
@@ -89,6 +92,16 @@ public class JModel implements Cloneable {
 		return this;
 	}
 
+	/**
+	 * serializes this model once as a template, the strings of the model can be {@link JTemplate#slot(String)}s
+	 *
+	 * @param slots the names of the slots, instances pass their values in this order
+	 * @see net.devtech.arrp.api.RuntimeResourcePack#addFromTemplate(net.minecraft.util.Identifier, JTemplate, String...)
+	 */
+	public JTemplate template(String... slots) {
+		return JTemplate.of(this, ResourceType.CLIENT_RESOURCES, "models", slots);
+	}
+
 	@Override
 	public JModel clone() {
 		try {
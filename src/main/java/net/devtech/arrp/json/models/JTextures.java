@@ -1,5 +1,6 @@
 package net.devtech.arrp.json.models;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
@@ -8,6 +9,8 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 public class JTextures {
 	private final Map<String, String> textures = new HashMap<>();
@@ -69,4 +72,15 @@ public class JTextures {
 			return json;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JTextures> {
+		@Override
+		public void write(JsonWriter out, JTextures src) throws IOException {
+			out.beginObject();
+			for (Map.Entry<String, String> entry : src.textures.entrySet()) {
+				out.name(entry.getKey()).value(entry.getValue());
+			}
+			out.endObject();
+		}
+	}
 }
@@ -1,13 +1,18 @@
 package net.devtech.arrp.json.recipe;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 import net.minecraft.item.Item;
 import net.minecraft.util.registry.Registry;
@@ -93,4 +98,26 @@ public class JIngredient implements Cloneable {
 			return object;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JIngredient> {
+		private final TypeAdapter<JIngredient> ingredient;
+
+		public Adapter(Gson gson) {
+			// gson hands out a placeholder that delegates to this adapter once it's created
+			this.ingredient = gson.getAdapter(JIngredient.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JIngredient src) throws IOException {
+			if (src.ingredients != null) {
+				writeArray(out, this.ingredient, src.ingredients);
+				return;
+			}
+
+			out.beginObject();
+			out.name("item").value(src.item);
+			out.name("tag").value(src.tag);
+			out.endObject();
+		}
+	}
 }
@@ -1,12 +1,17 @@
 package net.devtech.arrp.json.recipe;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 public class JIngredients {
 	protected final List<JIngredient> ingredients;
@@ -33,4 +38,17 @@ public class JIngredients {
 			return context.serialize(src.ingredients);
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JIngredients> {
+		private final TypeAdapter<JIngredient> ingredient;
+
+		public Adapter(Gson gson) {
+			this.ingredient = gson.getAdapter(JIngredient.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JIngredients src) throws IOException {
+			writeArray(out, this.ingredient, src.ingredients);
+		}
+	}
 }
@@ -1,14 +1,19 @@
 package net.devtech.arrp.json.recipe;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 public class JKeys implements Cloneable {
 	protected final Map<String, JIngredient> keys;
@@ -52,4 +57,34 @@ public class JKeys implements Cloneable {
 			return object;
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JKeys> {
+		private final TypeAdapter<JIngredient> ingredient;
+
+		public Adapter(Gson gson) {
+			this.ingredient = gson.getAdapter(JIngredient.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, JKeys src) throws IOException {
+			out.beginObject();
+			// acceptable keys override keys of the same name in place, like the tree serializer
+			for (Map.Entry<String, JIngredient> entry : src.keys.entrySet()) {
+				List<JIngredient> acceptable = src.acceptableKeys.get(entry.getKey());
+				out.name(entry.getKey());
+				if (acceptable != null) {
+					writeArray(out, this.ingredient, acceptable);
+				} else {
+					this.ingredient.write(out, entry.getValue());
+				}
+			}
+			for (Map.Entry<String, List<JIngredient>> entry : src.acceptableKeys.entrySet()) {
+				if (!src.keys.containsKey(entry.getKey())) {
+					out.name(entry.getKey());
+					writeArray(out, this.ingredient, entry.getValue());
+				}
+			}
+			out.endObject();
+		}
+	}
 }
@@ -1,10 +1,13 @@
 package net.devtech.arrp.json.recipe;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
+import net.devtech.arrp.util.StreamSerializer;
 
 public class JPattern implements Cloneable {
 	protected final String[] rows;
@@ -55,4 +58,15 @@ public class JPattern implements Cloneable {
 			return context.serialize(src.rows);
 		}
 	}
+
+	public static class Adapter extends StreamSerializer<JPattern> {
+		@Override
+		public void write(JsonWriter out, JPattern src) throws IOException {
+			out.beginArray();
+			for (String row : src.rows) {
+				out.value(row);
+			}
+			out.endArray();
+		}
+	}
 }
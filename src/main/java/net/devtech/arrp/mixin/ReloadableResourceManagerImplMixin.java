@@ -6,10 +6,13 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 import net.devtech.arrp.api.RRPCallback;
+import net.devtech.arrp.impl.PregenScheduler;
+import net.devtech.arrp.impl.RuntimeResourcePackImpl;
 import org.apache.logging.log4j.Logger;
 import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
@@ -22,6 +25,7 @@ import net.minecraft.util.Unit;
 @Mixin (ReloadableResourceManagerImpl.class)
 public abstract class ReloadableResourceManagerImplMixin {
 	@Shadow @Final private static Logger LOGGER;
+	@Unique private List<RuntimeResourcePackImpl> reloading;
 
 	@Inject (method = "beginMonitoredReload",
 			at = @At (value = "INVOKE", target = "Ljava/util/List;iterator()Ljava/util/Iterator;"))
@@ -31,9 +35,31 @@ public abstract class ReloadableResourceManagerImplMixin {
 			List<ResourcePack> packs,
 			CallbackInfoReturnable<ResourceReloadMonitor> cir) {
 		LOGGER.info("ARRP register");
+		// packs filled by pregen entrypoints have to be complete before they're added, unless pregen is streamed into them
+		PregenScheduler.onReload(RuntimeResourcePackImpl.STREAMING_PREGEN);
 		List<ResourcePack> pack = new ArrayList<>();
 		RRPCallback.EVENT.invoker().insert(pack);
-		pack.forEach(this::addPack);
+		this.reloading = new ArrayList<>();
+		for (ResourcePack resourcePack : pack) {
+			if (resourcePack instanceof RuntimeResourcePackImpl) {
+				((RuntimeResourcePackImpl) resourcePack).onReload();
+				this.reloading.add((RuntimeResourcePackImpl) resourcePack);
+			}
+			this.addPack(resourcePack);
+		}
+	}
+
+	@Inject (method = "beginMonitoredReload", at = @At ("RETURN"))
+	private void onARRPsReloaded(Executor prepareExecutor,
+			Executor applyExecutor,
+			CompletableFuture<Unit> initialStage,
+			List<ResourcePack> packs,
+			CallbackInfoReturnable<ResourceReloadMonitor> cir) {
+		List<RuntimeResourcePackImpl> reloading = this.reloading;
+		this.reloading = null;
+		if (reloading != null && !reloading.isEmpty()) {
+			cir.getReturnValue().whenComplete().thenRun(() -> reloading.forEach(RuntimeResourcePackImpl::onReloadComplete));
+		}
 	}
 
 	@Shadow
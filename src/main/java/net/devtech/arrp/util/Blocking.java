@@ -0,0 +1,51 @@
+package net.devtech.arrp.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * waits that tell a {@link ForkJoinPool} the current worker is blocked, so the pool can start a spare thread instead
+ * of running out of workers while they wait on each other. On any other thread these are plain waits.
+ */
+public final class Blocking {
+	private Blocking() {}
+
+	public static <T> T get(Future<T> future) throws InterruptedException, ExecutionException {
+		if (!future.isDone()) {
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+				@Override
+				public boolean block() throws InterruptedException {
+					try {
+						future.get();
+					} catch (ExecutionException | RuntimeException e) {
+						// rethrown by the get below
+					}
+					return true;
+				}
+
+				@Override
+				public boolean isReleasable() {
+					return future.isDone();
+				}
+			});
+		}
+		return future.get();
+	}
+
+	public static void await(CountDownLatch latch) throws InterruptedException {
+		ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+			@Override
+			public boolean block() throws InterruptedException {
+				latch.await();
+				return true;
+			}
+
+			@Override
+			public boolean isReleasable() {
+				return latch.getCount() == 0;
+			}
+		});
+	}
+}
@@ -0,0 +1,74 @@
+package net.devtech.arrp.util;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * an unsynchronized stream over a buffer, reading does not copy the buffer and the stream consumes the buffer's
+ * position
+ * <p>
+ * buffer positions are changed through {@link Buffer} so the calls link on java 8 when compiled with a newer jdk
+ */
+public class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int read() {
+		return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(@NotNull byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		int remaining = this.buffer.remaining();
+		if (remaining == 0) {
+			return -1;
+		}
+		len = Math.min(len, remaining);
+		this.buffer.get(b, off, len);
+		return len;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skipped = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+		((Buffer) this.buffer).position(this.buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return this.buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readlimit) {
+		((Buffer) this.buffer).mark();
+	}
+
+	@Override
+	public void reset() {
+		((Buffer) this.buffer).reset();
+	}
+
+	/**
+	 * @return the remaining, unread part of the buffer, for consumers that can read it directly
+	 */
+	public ByteBuffer getBuffer() {
+		return this.buffer.slice();
+	}
+}
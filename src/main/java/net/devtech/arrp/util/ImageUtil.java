@@ -1,6 +1,18 @@
 package net.devtech.arrp.util;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntUnaryOperator;
+
 public class ImageUtil {
+	// images smaller than this are recolored on the calling thread, the handoff would cost more than the work
+	private static final int STRIPE_PIXELS = 128 * 128;
+
 	public static int recolor(int input, int val) {
 		int a = input >> 24 & 0xFF, r = input >> 16 & 0xFF, g = input >> 8 & 0xFF, b = input & 0xFF;
 		input = a << 24;
@@ -12,4 +24,104 @@ public class ImageUtil {
 		return input;
 	}
 
+	/**
+	 * the same as {@link #recolor(int, int)} with the color fixed, each channel is looked up in a precomputed table
+	 * instead of doing the floating point math per pixel
+	 */
+	public static IntUnaryOperator recolor(int val) {
+		int[] red = new int[256], green = new int[256], blue = new int[256];
+		for (int c = 0; c < 256; c++) {
+			red[c] = (int) (c + ((1 - c / 255D) * ((val >> 16) & 0xFF))) << 16;
+			green[c] = (int) (c + ((1 - c / 255D) * ((val >> 8) & 0xFF))) << 8;
+			blue[c] = (int) (c + ((1 - c / 255D) * (val & 0xFF)));
+		}
+		return input -> {
+			int alpha = input & 0xFF000000;
+			if (alpha == 0) {
+				return 0;
+			}
+			return alpha | red[input >> 16 & 0xFF] | green[input >> 8 & 0xFF] | blue[input & 0xFF];
+		};
+	}
+
+	/**
+	 * @return the image if it's already a {@link BufferedImage#TYPE_INT_ARGB}, otherwise an argb copy of it
+	 */
+	public static BufferedImage toArgb(BufferedImage image) {
+		if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+			return image;
+		}
+		BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = argb.createGraphics();
+		graphics.drawImage(image, 0, 0, null);
+		graphics.dispose();
+		return argb;
+	}
+
+	/**
+	 * @return the backing pixel array of an argb image
+	 * @see #toArgb(BufferedImage)
+	 */
+	public static int[] pixels(BufferedImage argb) {
+		return ((DataBufferInt) argb.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * recolors every pixel of the image on its raw raster. Large images are split into row stripes which are shared
+	 * between the calling thread and the executor, the calling thread takes whatever stripes the executor hasn't
+	 * started yet, so this is safe to call from a task on the same executor.
+	 *
+	 * @param argb an image of type {@link BufferedImage#TYPE_INT_ARGB}, it's not modified
+	 * @return a new argb image
+	 */
+	public static BufferedImage recolor(BufferedImage argb, IntUnaryOperator operator, Executor executor) {
+		int width = argb.getWidth(), height = argb.getHeight();
+		BufferedImage recolored = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		int[] from = pixels(argb), to = pixels(recolored);
+		int pixels = width * height;
+		if (pixels < STRIPE_PIXELS * 2) {
+			recolor(from, to, 0, pixels, operator);
+			return recolored;
+		}
+
+		int stripe = Math.max(1, STRIPE_PIXELS / width) * width;
+		int stripes = (pixels + stripe - 1) / stripe;
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(stripes);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Runnable worker = () -> {
+			int index;
+			while ((index = next.getAndIncrement()) < stripes) {
+				int start = index * stripe;
+				try {
+					recolor(from, to, start, Math.min(start + stripe, pixels), operator);
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+
+		for (int i = 1; i < stripes; i++) {
+			executor.execute(worker);
+		}
+		worker.run();
+		try {
+			Blocking.await(done);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		if (failure.get() != null) {
+			throw new RuntimeException("unable to recolor image", failure.get());
+		}
+		return recolored;
+	}
+
+	private static void recolor(int[] from, int[] to, int start, int end, IntUnaryOperator operator) {
+		for (int i = start; i < end; i++) {
+			to[i] = operator.applyAsInt(from[i]);
+		}
+	}
 }
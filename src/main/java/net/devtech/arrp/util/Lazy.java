@@ -0,0 +1,110 @@
+package net.devtech.arrp.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
+
+/**
+ * a thread-safe lazily evaluated value. The supplier is evaluated at most once no matter how many threads ask for the
+ * value at the same time, every one of them gets the same result. If the supplier throws, the exception is cached and
+ * rethrown to every caller instead of evaluating again, a null result is cached like any other value.
+ * <p>
+ * a releasing lazy drops its value once it's been handed out, so a large value isn't kept alive after it's been
+ * used. The callers that were waiting on that evaluation all share it, the next caller evaluates the supplier again.
+ */
+public final class Lazy<T> implements Supplier<T> {
+	@SuppressWarnings ("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Lazy, FutureTask> TASK = AtomicReferenceFieldUpdater.newUpdater(Lazy.class, FutureTask.class, "task");
+
+	private final Supplier<? extends T> supplier;
+	private final boolean release;
+	private volatile FutureTask<T> task;
+
+	private Lazy(Supplier<? extends T> supplier, boolean release) {
+		this.supplier = supplier;
+		this.release = release;
+	}
+
+	/**
+	 * @return a lazy that keeps its value forever
+	 */
+	public static <T> Lazy<T> of(Supplier<? extends T> supplier) {
+		return new Lazy<>(supplier, false);
+	}
+
+	/**
+	 * @return a lazy that drops its value after it's first been returned
+	 */
+	public static <T> Lazy<T> releasing(Supplier<? extends T> supplier) {
+		return new Lazy<>(supplier, true);
+	}
+
+	@Override
+	public T get() {
+		FutureTask<T> task = this.task;
+		if (task == null) {
+			FutureTask<T> created = new FutureTask<>(this.supplier::get);
+			// whoever loses the race uses the winner's task
+			task = TASK.compareAndSet(this, null, created) ? created : this.task;
+			if (task == null) {
+				// released between the failed cas and the read
+				return this.get();
+			}
+		}
+
+		// a no-op if another thread is running or already ran it, get then waits for that thread
+		task.run();
+		try {
+			return this.await(task);
+		} finally {
+			if (this.release) {
+				TASK.compareAndSet(this, task, null);
+			}
+		}
+	}
+
+	/**
+	 * drops the value, or the failure, the next call to {@link #get()} evaluates the supplier again
+	 */
+	public void release() {
+		this.task = null;
+	}
+
+	/**
+	 * @return true if the value has been evaluated and is still held
+	 */
+	public boolean isDone() {
+		FutureTask<T> task = this.task;
+		return task != null && task.isDone();
+	}
+
+	private T await(FutureTask<T> task) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return Blocking.get(task);
+				} catch (InterruptedException e) {
+					// the evaluation isn't ours to abandon, other threads are waiting on it too
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		} catch (CancellationException e) {
+			throw new IllegalStateException("lazy value was cancelled", e);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package net.devtech.arrp.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * a png encoder for argb textures that writes straight into an {@link UnsafeByteArrayOutputStream}, it skips
+ * ImageIO's service lookup and intermediate buffers. Textures with 256 colors or less are written as indexed images.
+ */
+public final class PngEncoder {
+	/**
+	 * the fastest level, for resources generated at runtime
+	 */
+	public static final int FAST = Deflater.BEST_SPEED;
+	/**
+	 * the smallest output, for resources that are written to disk
+	 */
+	public static final int SMALL = Deflater.BEST_COMPRESSION;
+
+	private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final int IHDR = 0x49484452, PLTE = 0x504C5445, TRNS = 0x74524E53, IDAT = 0x49444154, IEND = 0x49454E44;
+	private static final int TRUECOLOR = 2, INDEXED = 3, TRUECOLOR_ALPHA = 6;
+	private static final int NONE = 0, SUB = 1, UP = 2, PAETH = 4;
+	private static final int[] FILTERS = {NONE, SUB, UP, PAETH};
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	private PngEncoder() {}
+
+	public static byte[] encode(BufferedImage image, int level) {
+		UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream(image.getWidth() * image.getHeight() + 128);
+		encode(image, level, out);
+		return out.getBytes();
+	}
+
+	/**
+	 * @param level the deflate level
+	 * @see #FAST
+	 * @see #SMALL
+	 */
+	public static void encode(BufferedImage image, int level, UnsafeByteArrayOutputStream out) {
+		int width = image.getWidth(), height = image.getHeight();
+		int[] pixels = pixels(image);
+		State state = STATE.get();
+
+		int[] palette = state.palette(pixels);
+		boolean alpha = false;
+		for (int pixel : pixels) {
+			if (pixel >>> 24 != 0xFF) {
+				alpha = true;
+				break;
+			}
+		}
+
+		out.write(SIGNATURE, 0, SIGNATURE.length);
+		int start = state.begin(out, IHDR);
+		writeInt(out, width);
+		writeInt(out, height);
+		out.write(8); // bit depth
+		out.write(palette != null ? INDEXED : alpha ? TRUECOLOR_ALPHA : TRUECOLOR);
+		out.write(0); // deflate
+		out.write(0); // adaptive filtering
+		out.write(0); // no interlace
+		state.end(out, start);
+
+		byte[] raw;
+		if (palette != null) {
+			start = state.begin(out, PLTE);
+			for (int color : palette) {
+				out.write(color >> 16);
+				out.write(color >> 8);
+				out.write(color);
+			}
+			state.end(out, start);
+
+			if (alpha) {
+				start = state.begin(out, TRNS);
+				for (int color : palette) {
+					out.write(color >>> 24);
+				}
+				state.end(out, start);
+			}
+
+			// filtering rarely helps indexed images
+			raw = state.raw(height * (width + 1));
+			int index = 0;
+			for (int y = 0; y < height; y++) {
+				raw[index++] = NONE;
+				for (int x = 0, offset = y * width; x < width; x++) {
+					raw[index++] = (byte) state.paletteIndex(pixels[offset + x]);
+				}
+			}
+		} else {
+			raw = state.truecolor(pixels, width, height, alpha ? 4 : 3, level);
+		}
+
+		start = state.begin(out, IDAT);
+		Deflater deflater = state.deflater;
+		deflater.reset();
+		deflater.setLevel(level);
+		deflater.setInput(raw, 0, state.rawLength);
+		deflater.finish();
+		while (!deflater.finished()) {
+			out.ensureCapacity(out.index + 4096);
+			out.index += deflater.deflate(out.buf, out.index, out.buf.length - out.index);
+		}
+		state.end(out, start);
+
+		state.end(out, state.begin(out, IEND));
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		Raster raster = image.getRaster();
+		// only use the raster directly if it's exactly the image, not a view into a larger one
+		if (image.getType() == BufferedImage.TYPE_INT_ARGB && raster.getParent() == null) {
+			SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+			if (model.getScanlineStride() == image.getWidth() && ImageUtil.pixels(image).length == image.getWidth() * image.getHeight()) {
+				return ImageUtil.pixels(image);
+			}
+		}
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+
+	private static void writeInt(UnsafeByteArrayOutputStream out, int value) {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+		if (pa <= pb && pa <= pc) {
+			return a;
+		}
+		return pb <= pc ? b : c;
+	}
+
+	/**
+	 * per-thread scratch space, so encoding doesn't allocate a deflater or buffers per image
+	 */
+	private static final class State {
+		private static final int EMPTY = 0;
+		private final Deflater deflater = new Deflater(FAST);
+		private final CRC32 crc = new CRC32();
+		// open addressing color -> palette index + 1, 0 is empty
+		private final int[] colors = new int[1024];
+		private final int[] indices = new int[1024];
+		private final int[] palette = new int[256];
+		private byte[] raw = new byte[0];
+		private final byte[][] filtered = new byte[FILTERS.length][];
+		private int rawLength;
+
+		int begin(UnsafeByteArrayOutputStream out, int type) {
+			int start = out.index;
+			writeInt(out, 0); // length, patched in end
+			writeInt(out, type);
+			return start;
+		}
+
+		void end(UnsafeByteArrayOutputStream out, int start) {
+			int length = out.index - start - 8;
+			byte[] buf = out.buf;
+			buf[start] = (byte) (length >>> 24);
+			buf[start + 1] = (byte) (length >>> 16);
+			buf[start + 2] = (byte) (length >>> 8);
+			buf[start + 3] = (byte) length;
+			this.crc.reset();
+			this.crc.update(buf, start + 4, length + 4);
+			writeInt(out, (int) this.crc.getValue());
+		}
+
+		byte[] raw(int length) {
+			if (this.raw.length < length) {
+				this.raw = new byte[length];
+			}
+			this.rawLength = length;
+			return this.raw;
+		}
+
+		/**
+		 * @return the distinct colors of the image, or null if there are more than 256
+		 */
+		int[] palette(int[] pixels) {
+			Arrays.fill(this.indices, EMPTY);
+			int size = 0;
+			for (int pixel : pixels) {
+				int slot = this.slot(pixel);
+				if (this.indices[slot] == EMPTY) {
+					if (size == 256) {
+						return null;
+					}
+					this.colors[slot] = pixel;
+					this.palette[size] = pixel;
+					this.indices[slot] = ++size;
+				}
+			}
+			return Arrays.copyOf(this.palette, size);
+		}
+
+		int paletteIndex(int pixel) {
+			return this.indices[this.slot(pixel)] - 1;
+		}
+
+		private int slot(int pixel) {
+			int slot = (pixel * 0x9E3779B9) >>> 22;
+			while (this.indices[slot] != EMPTY && this.colors[slot] != pixel) {
+				slot = (slot + 1) & 1023;
+			}
+			return slot;
+		}
+
+		/**
+		 * filters every row, with the fast level every row uses the sub filter, otherwise each row picks whichever
+		 * filter has the smallest sum of absolute values
+		 */
+		byte[] truecolor(int[] pixels, int width, int height, int bpp, int level) {
+			int stride = width * bpp;
+			byte[] raw = this.raw(height * (stride + 1));
+			byte[] previous = new byte[stride];
+			byte[] current = new byte[stride];
+			for (int i = 0; i < FILTERS.length; i++) {
+				if (this.filtered[i] == null || this.filtered[i].length < stride) {
+					this.filtered[i] = new byte[stride];
+				}
+			}
+
+			int index = 0;
+			for (int y = 0; y < height; y++) {
+				for (int x = 0, offset = y * width, i = 0; x < width; x++) {
+					int pixel = pixels[offset + x];
+					current[i++] = (byte) (pixel >> 16);
+					current[i++] = (byte) (pixel >> 8);
+					current[i++] = (byte) pixel;
+					if (bpp == 4) {
+						current[i++] = (byte) (pixel >>> 24);
+					}
+				}
+
+				if (level <= FAST) {
+					this.filter(SUB, current, previous, stride, bpp, this.filtered[0]);
+					raw[index++] = SUB;
+					System.arraycopy(this.filtered[0], 0, raw, index, stride);
+				} else {
+					int best = 0;
+					long bestSum = Long.MAX_VALUE;
+					for (int f = 0; f < FILTERS.length; f++) {
+						long sum = this.filter(FILTERS[f], current, previous, stride, bpp, this.filtered[f]);
+						if (sum < bestSum) {
+							bestSum = sum;
+							best = f;
+						}
+					}
+					raw[index++] = (byte) FILTERS[best];
+					System.arraycopy(this.filtered[best], 0, raw, index, stride);
+				}
+				index += stride;
+
+				byte[] swap = previous;
+				previous = current;
+				current = swap;
+			}
+			return raw;
+		}
+
+		private long filter(int filter, byte[] current, byte[] previous, int stride, int bpp, byte[] out) {
+			long sum = 0;
+			for (int i = 0; i < stride; i++) {
+				int value = current[i] & 0xFF;
+				int left = i >= bpp ? current[i - bpp] & 0xFF : 0;
+				int up = previous[i] & 0xFF;
+				int upLeft = i >= bpp ? previous[i - bpp] & 0xFF : 0;
+				int predicted;
+				switch (filter) {
+				case SUB:
+					predicted = left;
+					break;
+				case UP:
+					predicted = up;
+					break;
+				case PAETH:
+					predicted = paeth(left, up, upLeft);
+					break;
+				default:
+					predicted = 0;
+				}
+				byte filtered = (byte) (value - predicted);
+				out[i] = filtered;
+				sum += Math.abs(filtered);
+			}
+			return sum;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package net.devtech.arrp.util;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * a write-only gson adapter that writes straight to the output instead of building a JsonElement tree first
+ *
+ * @see StreamSerializerFactory
+ */
+public abstract class StreamSerializer<T> extends TypeAdapter<T> {
+	protected static <E> void writeArray(JsonWriter out, TypeAdapter<E> adapter, Iterable<E> values) throws IOException {
+		out.beginArray();
+		for (E value : values) {
+			adapter.write(out, value);
+		}
+		out.endArray();
+	}
+
+	@Override
+	public T read(JsonReader in) {
+		throw new UnsupportedOperationException("RRP json objects can only be serialized");
+	}
+}
@@ -0,0 +1,33 @@
+package net.devtech.arrp.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * registers {@link StreamSerializer}s, they are created with the gson instance so they can look up the adapters of
+ * nested types once instead of going through a JsonSerializationContext
+ */
+public class StreamSerializerFactory implements TypeAdapterFactory {
+	private final Map<Class<?>, Function<Gson, ? extends TypeAdapter<?>>> adapters = new HashMap<>();
+
+	public <T> StreamSerializerFactory register(Class<T> type, Function<Gson, ? extends TypeAdapter<T>> adapter) {
+		this.adapters.put(type, adapter);
+		return this;
+	}
+
+	@SuppressWarnings ("unchecked")
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		Function<Gson, ? extends TypeAdapter<?>> adapter = this.adapters.get(type.getRawType());
+		if (adapter == null) {
+			return null;
+		}
+		return ((TypeAdapter<T>) adapter.apply(gson)).nullSafe();
+	}
+}
@@ -26,7 +26,7 @@ public class UnsafeByteArrayOutputStream extends OutputStream implements AutoClo
 		this.buf[this.index++] = (byte) b;
 	}
 
-	private void ensureCapacity(int minCapacity) {
+	void ensureCapacity(int minCapacity) {
 		int len = this.buf.length;
 		if (minCapacity > len) {
 			int size = Math.max(minCapacity, len / 2 + len);
@@ -0,0 +1,65 @@
+package test;
+
+import net.devtech.arrp.api.RuntimeResourcePack;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * reader throughput of open/contains/findResources with 1..n threads, should scale with the core count now that readers
+ * don't share a lock
+ */
+public class RRPContentionTest {
+    private static final int RESOURCES = 10_000;
+    private static final long DURATION_MS = 2_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        RuntimeResourcePack pack = RuntimeResourcePack.create("test:contention");
+        Identifier[] ids = new Identifier[RESOURCES];
+        byte[] data = "{}".getBytes();
+        for (int i = 0; i < RESOURCES; i++) {
+            ids[i] = new Identifier("test", "models/block/block_" + i + ".json");
+            pack.addAsset(ids[i], data);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            System.out.printf("%d threads: %,d ops/s%n", threads, run(pack, ids, threads));
+        }
+    }
+
+    private static long run(RuntimeResourcePack pack, Identifier[] ids, int threads) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            new Thread(() -> {
+                int i = seed;
+                while (running.get()) {
+                    Identifier id = ids[i++ % ids.length];
+                    try (InputStream stream = pack.open(ResourceType.CLIENT_RESOURCES, id)) {
+                        stream.read();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    pack.contains(ResourceType.CLIENT_RESOURCES, id);
+                    if ((i & 1023) == 0) {
+                        pack.findResources(ResourceType.CLIENT_RESOURCES, "test", "models/block", Integer.MAX_VALUE, s -> true);
+                    }
+                    ops.add(2);
+                }
+                done.countDown();
+            }).start();
+        }
+        Thread.sleep(DURATION_MS);
+        running.set(false);
+        done.await();
+        return ops.sum() * 1000 / DURATION_MS;
+    }
+}
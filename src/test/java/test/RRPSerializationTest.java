@@ -0,0 +1,99 @@
+package test;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import net.devtech.arrp.impl.RuntimeResourcePackImpl;
+import net.devtech.arrp.json.JTemplate;
+import net.devtech.arrp.json.animation.JAnimation;
+import net.devtech.arrp.json.blockstate.JState;
+import net.devtech.arrp.json.loot.JEntry;
+import net.devtech.arrp.json.loot.JLootTable;
+import net.devtech.arrp.json.models.JModel;
+import net.devtech.arrp.json.recipe.JIngredient;
+import net.devtech.arrp.json.recipe.JIngredients;
+import net.devtech.arrp.json.recipe.JKeys;
+import net.devtech.arrp.json.recipe.JPattern;
+import net.devtech.arrp.json.recipe.JRecipe;
+import net.devtech.arrp.json.recipe.JResult;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Direction;
+
+import static net.devtech.arrp.json.blockstate.JState.*;
+import static net.devtech.arrp.json.models.JModel.*;
+
+/**
+ * checks that the streaming adapters write exactly the same json as the tree serializers
+ */
+public class RRPSerializationTest {
+    private static final Gson TREE = RuntimeResourcePackImpl.createGson(false, false);
+    private static final Gson STREAMING = RuntimeResourcePackImpl.createGson(true, false);
+
+    public static void main(String[] args) {
+        check("variant state", state(variant(JState.model("block/iron_block"))));
+        check("multipart state", state(multipart(JState.model("block/oak_fence_post")),
+                multipart(JState.model("block/oak_fence_side").uvlock()).when(when().add("north", "true")),
+                multipart(JState.model("block/oak_fence_side").y(90).uvlock()).when(when().add("east", "true").add("west", "true", "false"))));
+        check("model", model().textures(textures().var("all", "block/bamboo_stalk").particle("block/bamboo_stalk"))
+                .element(element().from(7, 0, 7).to(9, 16, 9).faces(faces().down(face("all").cullface(Direction.DOWN).uv(13, 4, 15, 6)).north(face("all").uv(9, 0, 11, 16)))));
+        check("animation", JAnimation.animation().interpolate().frameTime(2).add(JAnimation.frame(1)).add(0));
+        check("loot table", new JLootTable("minecraft:block")
+                .pool(JLootTable.pool()
+                        .rolls(1)
+                        .entry(new JEntry(new Identifier("minecraft:item"))
+                                .function(JLootTable.function(new Identifier("minecraft:explosion_decay")))
+                                .name(new Identifier("minecraft:iron_nugget")))
+                        .condition(JLootTable.predicate(new Identifier("minecraft:survives_explosion")))));
+        check("shaped recipe", JRecipe.shaped(JPattern.pattern("X X", " X ", "X X"),
+                JKeys.keys().key("X", JIngredient.ingredient().item("minecraft:stick").tag("minecraft:logs")),
+                JResult.result("minecraft:stick")));
+        check("shapeless recipe", JRecipe.shapeless(JIngredients.ingredients().add(JIngredient.ingredient().item("minecraft:stick")),
+                JResult.result("minecraft:stick")));
+        System.out.println("streaming and tree serializers match");
+
+        JTemplate template = JModel.model("block/cube_all").textures(textures().var("all", JTemplate.slot("texture"))).template("texture");
+        for (String texture : new String[] {"test:block/plain", "test:block/\"quoted\"\\\n\u2028\u00e9"}) {
+            String expected = RuntimeResourcePackImpl.GSON.toJson(JModel.model("block/cube_all").textures(textures().var("all", texture)));
+            String spliced = new String(template.apply(RuntimeResourcePackImpl.GSON, texture), StandardCharsets.UTF_8);
+            if (!expected.equals(spliced)) {
+                throw new AssertionError("template differs:\n" + expected + "\n" + spliced);
+            }
+        }
+
+        JTemplate state = JState.state(JState.variant(JState.model(JTemplate.slot("model")))).template("model");
+        for (String model : new String[] {"test:block/a", "block/b"}) {
+            checkTemplate(JState.state(JState.variant(JState.model(model))), state.apply(RuntimeResourcePackImpl.GSON, model));
+        }
+
+        JTemplate loot = new JLootTable("minecraft:block")
+                .pool(JLootTable.pool()
+                        .rolls(1)
+                        .entry(new JEntry(new Identifier("minecraft:item")).name(new Identifier(JTemplate.slot("item"))))
+                        .condition(JLootTable.predicate(new Identifier("minecraft:survives_explosion"))))
+                .template("item");
+        for (String item : new String[] {"test:ruby_block", "stone"}) {
+            checkTemplate(new JLootTable("minecraft:block")
+                    .pool(JLootTable.pool()
+                            .rolls(1)
+                            .entry(new JEntry(new Identifier("minecraft:item")).name(new Identifier(item)))
+                            .condition(JLootTable.predicate(new Identifier("minecraft:survives_explosion")))), loot.apply(RuntimeResourcePackImpl.GSON, item));
+        }
+        System.out.println("templates match the serialized objects");
+    }
+
+    private static void checkTemplate(Object object, byte[] spliced) {
+        String expected = RuntimeResourcePackImpl.GSON.toJson(object);
+        String actual = new String(spliced, StandardCharsets.UTF_8);
+        if (!expected.equals(actual)) {
+            throw new AssertionError("template differs:\n" + expected + "\n" + actual);
+        }
+    }
+
+    private static void check(String name, Object object) {
+        String tree = TREE.toJson(object);
+        String streaming = STREAMING.toJson(object);
+        if (!tree.equals(streaming)) {
+            throw new AssertionError(name + " differs:\n" + tree + "\n" + streaming);
+        }
+    }
+}